@@ -0,0 +1,122 @@
+package com.smartcode.analyzer.config;
+
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.CodeParserUtil;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ScratchSpace;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableScheduling
+public class AnalyzerConfig {
+
+    // 0 = one parser per available core in each pool; preload-levels: more levels to warm up at startup
+    @Bean
+    public ParserPools parserPools(
+            @Value("${analyzer.parser.pool-size:0}") int size,
+            @Value("${analyzer.parser.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+            @Value("${analyzer.parser.language-level:17}") String languageLevel,
+            @Value("${analyzer.parser.preload-levels:}") String preloadLevels) {
+
+        LanguageLevel defaultLevel = ParserPools.parseLevel(languageLevel);
+        if (defaultLevel == null) {
+            defaultLevel = CodeParserUtil.defaultConfiguration().getLanguageLevel();
+        }
+
+        List<LanguageLevel> preload = new ArrayList<>();
+        for (String level : preloadLevels.split(",")) {
+            LanguageLevel parsed = ParserPools.parseLevel(level);
+            if (parsed != null) preload.add(parsed);
+        }
+        return new ParserPools(defaultLevel, preload, size, acquireTimeoutMs);
+    }
+
+    // Content-hash result cache; max-entries 0 disables it
+    @Bean
+    public AnalysisCache analysisCache(
+            @Value("${analyzer.cache.max-entries:10000}") int maxEntries,
+            @Value("${analyzer.cache.max-bytes:67108864}") long maxBytes) {
+
+        return new AnalysisCache(maxEntries, maxBytes);
+    }
+
+    // Second tier under the in-memory cache, kept in {dir}/smartcode-cache; opt-in, max-bytes 0 disables it
+    @Bean(destroyMethod = "close")
+    public DiskAnalysisCache diskAnalysisCache(
+            @Value("${analyzer.disk-cache.dir:cache/analysis}") String dir,
+            @Value("${analyzer.disk-cache.max-bytes:0}") long maxBytes) {
+
+        return new DiskAnalysisCache(Paths.get(dir), maxBytes);
+    }
+
+    // Per-path declaration state for re-uploads; max-files 0 disables it
+    @Bean
+    public IncrementalAnalyzer incrementalAnalyzer(
+            @Value("${analyzer.incremental.max-files:1000}") int maxFiles) {
+
+        return new IncrementalAnalyzer(maxFiles);
+    }
+
+    // Per-request limits, max-zip-ms for a whole ZIP request; 0 disables a limit
+    @Bean
+    public AnalysisBudget analysisBudget(
+            @Value("${analyzer.budget.max-bytes:5242880}") long maxBytes,
+            @Value("${analyzer.budget.max-tokens:1000000}") long maxTokens,
+            @Value("${analyzer.budget.max-wall-ms:10000}") long maxWallMs,
+            @Value("${analyzer.budget.max-zip-ms:300000}") long maxZipMs) {
+
+        return new AnalysisBudget(maxBytes, maxTokens, maxWallMs, maxZipMs);
+    }
+
+    // Workers for multi-file requests; 0 = one per core, max-in-flight 0 = 4 per worker,
+    // max-queued 0 = 16 per worker
+    @Bean(destroyMethod = "shutdown")
+    public AnalysisExecutor analysisExecutor(
+            @Value("${analyzer.zip.workers:0}") int workers,
+            @Value("${analyzer.zip.max-in-flight:0}") int maxInFlight,
+            @Value("${analyzer.zip.max-queued:0}") int maxQueued,
+            @Value("${analyzer.zip.queue-timeout-ms:30000}") long queueTimeoutMs) {
+
+        return new AnalysisExecutor(workers, maxInFlight, maxQueued, queueTimeoutMs);
+    }
+
+    // Disk space for spooled uploads in {dir}/smartcode-scratch; empty dir = java.io.tmpdir, 0 disables a quota
+    @Bean(destroyMethod = "close")
+    public ScratchSpace scratchSpace(
+            @Value("${analyzer.scratch.dir:}") String dir,
+            @Value("${analyzer.scratch.max-bytes:2147483648}") long maxBytes,
+            @Value("${analyzer.scratch.max-request-bytes:536870912}") long maxRequestBytes) {
+
+        Path root = dir.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"))
+                : Paths.get(dir);
+        return new ScratchSpace(root, maxBytes, maxRequestBytes);
+    }
+
+    // JDK types for the project call graph, shared by all builds; max-entries 0 disables its cache
+    @Bean
+    public JdkTypeSolver jdkTypeSolver(
+            @Value("${analyzer.typesolver.max-entries:20000}") int maxEntries,
+            @Value("${analyzer.typesolver.prewarm:true}") boolean prewarm) {
+
+        JdkTypeSolver solver = new JdkTypeSolver(maxEntries);
+        if (prewarm) solver.prewarm();
+        return solver;
+    }
+}
@@ -0,0 +1,186 @@
+package com.smartcode.analyzer.config;
+
+import com.smartcode.analyzer.util.CodeParserUtil;
+import com.smartcode.analyzer.util.Deadline;
+import com.smartcode.analyzer.util.FastScanner;
+import com.smartcode.analyzer.util.ParserPool;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.Section;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Runs the parser hot paths until the JIT has compiled them, before the
+ * application reports ready.
+ *
+ * Spring Boot only switches readiness to ACCEPTING_TRAFFIC once every
+ * ApplicationRunner has returned, so /api/analyze/ready answers 503 while
+ * this runs. Each round analyzes every corpus file once per parser of every
+ * warmed-up pool (ParserPools.warmUp()), on as many threads as the pool has parsers, so all instances get
+ * used; the caches are bypassed. Warm-up ends when the median latency of
+ * two consecutive rounds stays within STEADY_TOLERANCE, or at max-rounds /
+ * max-ms, and the duration and latencies are logged.
+ */
+@Component
+public class AnalyzerWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyzerWarmUp.class);
+
+    private static final int MAX_FILES = 100;
+    private static final double STEADY_TOLERANCE = 0.05;
+
+    private final ParserPools parserPools;
+    private final boolean enabled;
+    private final String corpus;
+    private final int maxRounds;
+    private final long maxMillis;
+
+    public AnalyzerWarmUp(ParserPools parserPools,
+                          @Value("${analyzer.warmup.enabled:true}") boolean enabled,
+                          @Value("${analyzer.warmup.corpus:samplfiles/javacode2.java}") String corpus,
+                          @Value("${analyzer.warmup.max-rounds:50}") int maxRounds,
+                          @Value("${analyzer.warmup.max-ms:60000}") long maxMillis) {
+        this.parserPools = parserPools;
+        this.enabled = enabled;
+        this.corpus = corpus;
+        this.maxRounds = maxRounds;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!enabled) return;
+
+        List<ByteBuffer> sources = load(corpus);
+        if (sources.isEmpty()) {
+            log.warn("Analyzer warm-up skipped: no .java files in '{}'", corpus);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long stopAt = start + maxMillis * 1_000_000;
+
+        for (ParserPool pool : parserPools.warmUp()) {
+            try {
+                warm(pool, sources, stopAt);
+            } catch (Exception e) {
+                // a slow first request is better than no start at all
+                log.warn("Analyzer warm-up of {} failed: {}", pool.getConfigKey(), e.toString());
+            }
+        }
+
+        log.info("Analyzer warm-up done in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void warm(ParserPool pool, List<ByteBuffer> sources, long stopAt) throws Exception {
+        int threads = pool.getSize();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "analyzer-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long start = System.nanoTime();
+        double first = 0;
+        double previous = 0;
+        double median = 0;
+        int rounds = 0;
+        int steady = 0;
+
+        try {
+            while (rounds < maxRounds && !timeUp(stopAt) && steady < 2) {
+                long[] nanos = round(workers, pool, sources, threads);
+                rounds++;
+
+                Arrays.sort(nanos);
+                median = nanos[nanos.length / 2] / 1e6;
+                if (rounds == 1) first = median;
+
+                boolean close = rounds > 1 && Math.abs(median - previous) <= previous * STEADY_TOLERANCE;
+                steady = close ? steady + 1 : 0;
+                previous = median;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        log.info("Warmed parser pool {} ({} parsers) in {} rounds, {} ms: "
+                        + "median {} ms per file at first, {} ms at {}",
+                pool.getConfigKey(), threads, rounds, (System.nanoTime() - start) / 1_000_000,
+                String.format("%.2f", first), String.format("%.2f", median),
+                steady >= 2 ? "steady state" : "the limit");
+    }
+
+    // nanoTime may be negative, so max-ms 0 skips the check rather than using a far-off stopAt
+    private boolean timeUp(long stopAt) {
+        return maxMillis > 0 && System.nanoTime() - stopAt >= 0;
+    }
+
+    // Every source once per parser; the full-parse latency of each
+    private static long[] round(ExecutorService workers, ParserPool pool, List<ByteBuffer> sources,
+                                int copies) throws Exception {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            for (ByteBuffer source : sources) {
+                tasks.add(() -> {
+                    long t = System.nanoTime();
+                    try {
+                        CodeParserUtil.parseJavaFile(source.duplicate(), pool, Deadline.NONE, Section.ALL);
+                    } catch (Exception e) {
+                        // a corpus file that doesn't parse still exercises the parser
+                    }
+                    long elapsed = System.nanoTime() - t;
+                    FastScanner.scan(source.duplicate());
+                    return elapsed;
+                });
+            }
+        }
+
+        List<Future<Long>> done = workers.invokeAll(tasks);
+        long[] nanos = new long[done.size()];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = done.get(i).get();
+        }
+        return nanos;
+    }
+
+    // Comma-separated files and directories; directories contribute their .java files
+    private static List<ByteBuffer> load(String corpus) {
+        List<ByteBuffer> sources = new ArrayList<>();
+
+        for (String part : corpus.split(",")) {
+            if (part.isBlank()) continue;
+            Path path = Paths.get(part.trim());
+
+            try (Stream<Path> files = Files.isDirectory(path) ? Files.walk(path) : Stream.of(path)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (sources.size() >= MAX_FILES) return sources;
+                    if (!Files.isRegularFile(file) || !file.toString().endsWith(".java")) continue;
+                    sources.add(ByteBuffer.wrap(Files.readAllBytes(file)));
+                }
+            } catch (IOException e) {
+                log.warn("Analyzer warm-up cannot read '{}': {}", part.trim(), e.getMessage());
+            }
+        }
+        return sources;
+    }
+}
@@ -1,37 +1,64 @@
 package com.smartcode.analyzer.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartcode.analyzer.model.ProjectMetrics;
 import com.smartcode.analyzer.service.AnalysisService;
 import com.smartcode.analyzer.service.AnalysisService.AnalysisResult;
-import com.smartcode.analyzer.util.ZipUtil;
-import com.smartcode.analyzer.util.ZipUtil;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.Section;
 
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class AnalysisController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final AnalysisService analysisService;
+    private final ObjectMapper mapper;
+    private final ApplicationAvailability availability;
 
-    public AnalysisController(AnalysisService analysisService) {
+    public AnalysisController(AnalysisService analysisService, ObjectMapper mapper,
+                              ApplicationAvailability availability) {
         this.analysisService = analysisService;
+        this.mapper = mapper;
+        this.availability = availability;
     }
 
     /* ---------------------------------------------------------
        PART A — Analyze a Single Java File
+       languageLevel=17, 21, ... picks the Java version; without it
+       the version is auto-detected (as for every ZIP entry)
     ---------------------------------------------------------- */
     @PostMapping("/analyze")
-    public ResponseEntity<?> analyze(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> analyze(@RequestParam("file") MultipartFile file,
+                                     @RequestParam(value = "mode", defaultValue = "full") String mode,
+                                     @RequestParam(value = "include", required = false) String include,
+                                     @RequestParam(value = "languageLevel", required = false) String languageLevel) {
 
         try {
-            AnalysisResult result = analysisService.analyzeFile(file);
+            AnalysisResult result = analysisService.analyzeFile(file, AnalysisService.Mode.parse(mode),
+                    Section.parse(include), ParserPools.parseLevel(languageLevel));
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
@@ -41,39 +68,230 @@ public class AnalysisController {
         }
     }
 
+    /* ---------------------------------------------------------
+       Analyzer runtime statistics (parser pool, ...)
+    ---------------------------------------------------------- */
+    @GetMapping("/analyze/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(analysisService.getStats());
+    }
+
+    /* ---------------------------------------------------------
+       Readiness for load balancers: 503 until startup, including
+       the parser warm-up, is over
+    ---------------------------------------------------------- */
+    @GetMapping("/analyze/ready")
+    public ResponseEntity<?> ready() {
+        ReadinessState state = availability.getReadinessState();
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC
+                ? HttpStatus.OK
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(Map.of("readiness", state.name()));
+    }
+
     /* ---------------------------------------------------------
        PART B — Analyze ZIP containing multiple Java files
     ---------------------------------------------------------- */
     @PostMapping("/analyzeZip")
-    public ResponseEntity<?> analyzeZip(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> analyzeZip(@RequestParam("file") MultipartFile file,
+                                        @RequestParam(value = "include", required = false) String include) {
 
         try {
+            Set<Section> sections = Section.parse(include);
 
             if (!file.getOriginalFilename().endsWith(".zip")) {
                 return ResponseEntity.badRequest().body("Uploaded file is not a ZIP!");
             }
 
-            // Extract ZIP → get list of java files
-            List<File> extractedFiles = ZipUtil.extractZipToTemp(file.getInputStream());
+            // Java entries are analyzed in parallel, straight from the upload
+            List<AnalysisResult> results = analysisService.analyzeZip(file, sections);
 
-            if (extractedFiles.isEmpty()) {
+            if (results.isEmpty()) {
                 return ResponseEntity.badRequest().body("ZIP contains no .java files.");
             }
 
-            // Analyze each Java file
+            return ResponseEntity.ok(results);
+
+        } catch (IllegalStateException e) {
+            // the worker queue stayed full: overloaded, not a bad upload
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("ZIP processing error: " + e.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------------
+       PART B (summary) — project aggregates only: sums, min/max,
+       mean, p50/p90/p99 and quality histogram, in constant memory;
+       callGraph=true adds the project-wide call graph
+    ---------------------------------------------------------- */
+    @PostMapping("/analyzeZip/summary")
+    public ResponseEntity<?> analyzeZipSummary(@RequestParam("file") MultipartFile file,
+                                               @RequestParam(value = "callGraph", defaultValue = "false") boolean callGraph) {
+
+        try {
+            if (!file.getOriginalFilename().endsWith(".zip")) {
+                return ResponseEntity.badRequest().body("Uploaded file is not a ZIP!");
+            }
+
+            return ResponseEntity.ok(analysisService.summarizeZip(file, callGraph));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("ZIP processing error: " + e.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------------
+       Merge project aggregates of several shards / batches
+    ---------------------------------------------------------- */
+    @PostMapping("/analyzeZip/summary/merge")
+    public ResponseEntity<?> mergeSummaries(@RequestBody List<ProjectMetrics> parts) {
+        ProjectMetrics merged = new ProjectMetrics();
+        for (int i = 0; i < parts.size(); i++) {
+            ProjectMetrics part = parts.get(i);
+            try {
+                if (part == null) throw new IllegalArgumentException("missing");
+                part.validate();
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid summary " + i + ": " + e.getMessage());
+            }
+            merged.merge(part);
+        }
+        return ResponseEntity.ok(merged);
+    }
+
+    /* ---------------------------------------------------------
+       PART B (streamed) — Accept: application/x-ndjson
+       One JSON line per file, written as soon as the file (and every
+       file before it) is done, then a {"type":"summary"} line. Nothing
+       is kept per file, so memory stays flat however large the ZIP is.
+       Failures go out as a {"type":"error"} line.
+    ---------------------------------------------------------- */
+    @PostMapping(value = "/analyzeZip", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> analyzeZipStream(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "include", required = false) String include) {
+
+        if (!file.getOriginalFilename().endsWith(".zip")) {
+            return ResponseEntity.badRequest().contentType(NDJSON)
+                    .body(out -> writeLine(mapper.getFactory().createGenerator(out),
+                            error("Uploaded file is not a ZIP!")));
+        }
+
+        Set<Section> sections;
+        try {
+            sections = Section.parse(include);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(NDJSON)
+                    .body(out -> writeLine(mapper.getFactory().createGenerator(out),
+                            error("ZIP processing error: " + e.getMessage())));
+        }
+
+        return ndjson(sink -> analysisService.analyzeZip(file, sections, sink));
+    }
+
+    /* ---------------------------------------------------------
+       Raw request bodies — no multipart buffering or spooling.
+       A ZIP body (Content-Type: application/zip) is inflated and
+       parsed while it is still arriving; a single source file
+       (Content-Type: text/x-java-source) is read straight in.
+    ---------------------------------------------------------- */
+    @PostMapping(value = "/analyze", consumes = "text/x-java-source")
+    public ResponseEntity<?> analyzeBody(InputStream body,
+                                         @RequestParam(value = "fileName", defaultValue = "Main.java") String fileName,
+                                         @RequestParam(value = "mode", defaultValue = "full") String mode,
+                                         @RequestParam(value = "include", required = false) String include,
+                                         @RequestParam(value = "languageLevel", required = false) String languageLevel) {
+
+        try {
+            AnalysisResult result = analysisService.analyzeBody(fileName, body, AnalysisService.Mode.parse(mode),
+                    Section.parse(include), ParserPools.parseLevel(languageLevel));
+            return ResponseEntity.ok(result);
+
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Error analyzing file: " + e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/analyzeZip", consumes = "application/zip")
+    public ResponseEntity<?> analyzeZipBody(InputStream body,
+                                            @RequestParam(value = "include", required = false) String include) {
+
+        try {
             List<AnalysisResult> results = new ArrayList<>();
+            analysisService.analyzeZip(body, Section.parse(include), results::add);
 
-            for (File f : extractedFiles) {
-                MultipartFile mf = ZipUtil.convertFileToMultipart(f);
-                results.add(analysisService.analyzeFile(mf));
+            if (results.isEmpty()) {
+                return ResponseEntity.badRequest().body("ZIP contains no .java files.");
             }
 
             return ResponseEntity.ok(results);
 
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity
                     .badRequest()
                     .body("ZIP processing error: " + e.getMessage());
         }
     }
+
+    @PostMapping(value = "/analyzeZip", consumes = "application/zip", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> analyzeZipBodyStream(
+            InputStream body,
+            @RequestParam(value = "include", required = false) String include) {
+
+        Set<Section> sections;
+        try {
+            sections = Section.parse(include);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(NDJSON)
+                    .body(out -> writeLine(mapper.getFactory().createGenerator(out),
+                            error("ZIP processing error: " + e.getMessage())));
+        }
+
+        // the body is still read, while the response streams, on the async thread
+        return ndjson(sink -> analysisService.analyzeZip(body, sections, sink));
+    }
+
+    // One ZIP analysis writing its results to the given sink
+    private interface ZipRun {
+        AnalysisService.ZipSummary run(AnalysisExecutor.Sink<AnalysisResult> sink) throws Exception;
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(ZipRun run) {
+        return ResponseEntity.ok().contentType(NDJSON).body(out -> {
+            try (JsonGenerator gen = mapper.getFactory().createGenerator((OutputStream) out)) {
+                // lines are separated by '\n' below, not by the default space
+                gen.setRootValueSeparator(null);
+                try {
+                    AnalysisService.ZipSummary summary = run.run(r -> writeLine(gen, r));
+                    writeLine(gen, summary);
+
+                } catch (Exception e) {
+                    writeLine(gen, error("ZIP processing error: " + e.getMessage()));
+                }
+            }
+        });
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("type", "error", "message", String.valueOf(message));
+    }
+
+    private void writeLine(JsonGenerator gen, Object value) throws IOException {
+        mapper.writeValue(gen, value);
+        gen.writeRaw('\n');
+        gen.flush();
+    }
 }
@@ -0,0 +1,94 @@
+package com.smartcode.analyzer.controller;
+
+import com.smartcode.analyzer.service.AnalysisJobService;
+import com.smartcode.analyzer.service.AnalysisJobService.Job;
+import com.smartcode.analyzer.service.AnalysisService.AnalysisResult;
+import com.smartcode.analyzer.util.Section;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*")
+public class AnalysisJobController {
+
+    private final AnalysisJobService jobService;
+
+    public AnalysisJobController(AnalysisJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /* ---------------------------------------------------------
+       Queue a ZIP for background analysis; returns the job at once
+    ---------------------------------------------------------- */
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "include", required = false) String include) {
+
+        try {
+            Set<Section> sections = Section.parse(include);
+
+            if (!file.getOriginalFilename().endsWith(".zip")) {
+                return ResponseEntity.badRequest().body("Uploaded file is not a ZIP!");
+            }
+
+            Job job = jobService.submit(file, sections);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getId()))
+                    .body(job);
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("ZIP processing error: " + e.getMessage());
+        }
+    }
+
+    /* ---------------------------------------------------------
+       Progress: files done / total, bytes processed, ETA
+    ---------------------------------------------------------- */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id) {
+        Job job = jobService.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /* ---------------------------------------------------------
+       Results of a finished job, in archive order
+    ---------------------------------------------------------- */
+    @GetMapping("/{id}/results")
+    public ResponseEntity<?> results(@PathVariable String id) {
+        Job job = jobService.get(id);
+        if (job == null) return ResponseEntity.notFound().build();
+
+        List<AnalysisResult> results = jobService.results(id);
+        if (results == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    /* ---------------------------------------------------------
+       SSE: job-progress events, then job-complete / job-failed
+    ---------------------------------------------------------- */
+    @GetMapping("/{id}/events")
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        SseEmitter emitter = jobService.subscribe(id);
+        return emitter == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats() {
+        return ResponseEntity.ok(jobService.stats());
+    }
+}
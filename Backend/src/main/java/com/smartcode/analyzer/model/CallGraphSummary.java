@@ -0,0 +1,92 @@
+package com.smartcode.analyzer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project-wide call graph figures of a ZIP upload (include=callgraph).
+ * Methods are named "pkg.Type.name(ParamTypes)"; the lists are capped, the
+ * counters are not.
+ */
+public class CallGraphSummary {
+
+    private int methods;
+    private int calls;              // distinct caller -> callee pairs inside the project
+    private int externalCalls;      // call sites resolved to the JDK
+    private int unresolvedCalls;    // call sites the symbol solver could not resolve
+    private int skippedFiles;       // not parsed, or over analyzer.callgraph.max-files
+    private boolean truncated;      // resolution stopped at analyzer.callgraph.max-millis
+
+    // levels of the longest call chain; a recursion cycle counts as one level
+    private int maxCallDepth;
+    private List<String> deepestChain = new ArrayList<>();
+
+    private int recursiveCycles;
+    private List<List<String>> cycles = new ArrayList<>();
+
+    private List<MethodCount> topFanIn = new ArrayList<>();
+    private List<MethodCount> topFanOut = new ArrayList<>();
+
+    private long elapsedMs;
+
+    public static class MethodCount {
+        private String method;
+        private int count;
+
+        public MethodCount() { }
+
+        public MethodCount(String method, int count) {
+            this.method = method;
+            this.count = count;
+        }
+
+        public String getMethod() { return method; }
+        public void setMethod(String method) { this.method = method; }
+
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+    }
+
+    // -----------------------------
+    // Getters & Setters
+    // -----------------------------
+
+    public int getMethods() { return methods; }
+    public void setMethods(int methods) { this.methods = methods; }
+
+    public int getCalls() { return calls; }
+    public void setCalls(int calls) { this.calls = calls; }
+
+    public int getExternalCalls() { return externalCalls; }
+    public void setExternalCalls(int externalCalls) { this.externalCalls = externalCalls; }
+
+    public int getUnresolvedCalls() { return unresolvedCalls; }
+    public void setUnresolvedCalls(int unresolvedCalls) { this.unresolvedCalls = unresolvedCalls; }
+
+    public int getSkippedFiles() { return skippedFiles; }
+    public void setSkippedFiles(int skippedFiles) { this.skippedFiles = skippedFiles; }
+
+    public boolean isTruncated() { return truncated; }
+    public void setTruncated(boolean truncated) { this.truncated = truncated; }
+
+    public int getMaxCallDepth() { return maxCallDepth; }
+    public void setMaxCallDepth(int maxCallDepth) { this.maxCallDepth = maxCallDepth; }
+
+    public List<String> getDeepestChain() { return deepestChain; }
+    public void setDeepestChain(List<String> deepestChain) { this.deepestChain = deepestChain; }
+
+    public int getRecursiveCycles() { return recursiveCycles; }
+    public void setRecursiveCycles(int recursiveCycles) { this.recursiveCycles = recursiveCycles; }
+
+    public List<List<String>> getCycles() { return cycles; }
+    public void setCycles(List<List<String>> cycles) { this.cycles = cycles; }
+
+    public List<MethodCount> getTopFanIn() { return topFanIn; }
+    public void setTopFanIn(List<MethodCount> topFanIn) { this.topFanIn = topFanIn; }
+
+    public List<MethodCount> getTopFanOut() { return topFanOut; }
+    public void setTopFanOut(List<MethodCount> topFanOut) { this.topFanOut = topFanOut; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+}
@@ -0,0 +1,60 @@
+package com.smartcode.analyzer.model;
+
+/**
+ * Per-method breakdown of one file, stored column-wise: row i of every
+ * array describes the i-th method in declaration order. Keeps the response
+ * (and the cache) compact for classes with thousands of methods.
+ */
+public class MethodTable {
+
+    private String[] names;
+    private int[] beginLines;
+    private int[] endLines;
+    private int[] complexity;
+    private int[] loops;
+    private int[] conditionals;
+    private int[] calls;
+
+    // Row indexes of the most complex methods, most complex first
+    private int[] hotspots;
+
+    public MethodTable() {}
+
+    public MethodTable(String[] names, int[] beginLines, int[] endLines, int[] complexity,
+                       int[] loops, int[] conditionals, int[] calls, int[] hotspots) {
+        this.names = names;
+        this.beginLines = beginLines;
+        this.endLines = endLines;
+        this.complexity = complexity;
+        this.loops = loops;
+        this.conditionals = conditionals;
+        this.calls = calls;
+        this.hotspots = hotspots;
+    }
+
+    public int size() { return names == null ? 0 : names.length; }
+
+    public String[] getNames() { return names; }
+    public void setNames(String[] names) { this.names = names; }
+
+    public int[] getBeginLines() { return beginLines; }
+    public void setBeginLines(int[] beginLines) { this.beginLines = beginLines; }
+
+    public int[] getEndLines() { return endLines; }
+    public void setEndLines(int[] endLines) { this.endLines = endLines; }
+
+    public int[] getComplexity() { return complexity; }
+    public void setComplexity(int[] complexity) { this.complexity = complexity; }
+
+    public int[] getLoops() { return loops; }
+    public void setLoops(int[] loops) { this.loops = loops; }
+
+    public int[] getConditionals() { return conditionals; }
+    public void setConditionals(int[] conditionals) { this.conditionals = conditionals; }
+
+    public int[] getCalls() { return calls; }
+    public void setCalls(int[] calls) { this.calls = calls; }
+
+    public int[] getHotspots() { return hotspots; }
+    public void setHotspots(int[] hotspots) { this.hotspots = hotspots; }
+}
@@ -0,0 +1,83 @@
+package com.smartcode.analyzer.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.smartcode.analyzer.util.QuantileSketch;
+
+/**
+ * Running statistics of one per-file metric: count, sum, min, max, mean and
+ * p50/p90/p99 (from the sketch, within 1%). Constant size however many files
+ * are added, and mergeable with the same metric of another batch.
+ */
+@JsonIgnoreProperties(value = {"mean", "p50", "p90", "p99"}, allowGetters = true)
+public class MetricStat {
+
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+    private QuantileSketch sketch = new QuantileSketch();
+
+    public void add(double value) {
+        if (count == 0 || value < min) min = value;
+        if (count == 0 || value > max) max = value;
+        count++;
+        sum += value;
+        sketch.add(value);
+    }
+
+    public void merge(MetricStat other) {
+        if (other.count == 0) return;
+        if (count == 0 || other.min < min) min = other.min;
+        if (count == 0 || other.max > max) max = other.max;
+        count += other.count;
+        sum += other.sum;
+        sketch.merge(other.sketch);
+    }
+
+    // Rejects state add() and merge() can't produce (see QuantileSketch.validate())
+    public void validate() {
+        if (count < 0) throw new IllegalArgumentException("negative count");
+        if (!Double.isFinite(sum) || !Double.isFinite(min) || !Double.isFinite(max)) {
+            throw new IllegalArgumentException("sum, min and max must be finite");
+        }
+        if (count > 0 && min > max) throw new IllegalArgumentException("min above max");
+
+        sketch.validate();
+        if (sketch.count() != count) throw new IllegalArgumentException("sketch holds a different count");
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : round(sum / count);
+    }
+
+    public double getP50() { return quantile(0.50); }
+    public double getP90() { return quantile(0.90); }
+    public double getP99() { return quantile(0.99); }
+
+    // the sketch is approximate; never report outside the exact range
+    private double quantile(double q) {
+        if (count == 0) return 0;
+        return round(Math.max(min, Math.min(max, sketch.quantile(q))));
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100.0) / 100.0;
+    }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public double getSum() { return sum; }
+    public void setSum(double sum) { this.sum = sum; }
+
+    public double getMin() { return min; }
+    public void setMin(double min) { this.min = min; }
+
+    public double getMax() { return max; }
+    public void setMax(double max) { this.max = max; }
+
+    public QuantileSketch getSketch() { return sketch; }
+    public void setSketch(QuantileSketch sketch) {
+        this.sketch = sketch == null ? new QuantileSketch() : sketch;
+    }
+}
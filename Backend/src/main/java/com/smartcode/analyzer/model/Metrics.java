@@ -3,6 +3,9 @@ package com.smartcode.analyzer.model;
 public class Metrics {
 
     private int totalLines;
+    private int blankLines;
+    private int commentLines;
+    private int codeLines;
     private int totalClasses;
     private int totalMethods;
     private int totalVariables;
@@ -22,6 +25,15 @@ public class Metrics {
     public int getTotalLines() { return totalLines; }
     public void setTotalLines(int totalLines) { this.totalLines = totalLines; }
 
+    public int getBlankLines() { return blankLines; }
+    public void setBlankLines(int blankLines) { this.blankLines = blankLines; }
+
+    public int getCommentLines() { return commentLines; }
+    public void setCommentLines(int commentLines) { this.commentLines = commentLines; }
+
+    public int getCodeLines() { return codeLines; }
+    public void setCodeLines(int codeLines) { this.codeLines = codeLines; }
+
     public int getTotalClasses() { return totalClasses; }
     public void setTotalClasses(int totalClasses) { this.totalClasses = totalClasses; }
 
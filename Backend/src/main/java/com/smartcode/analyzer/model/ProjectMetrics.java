@@ -0,0 +1,131 @@
+package com.smartcode.analyzer.model;
+
+/**
+ * Project-level aggregate of per-file Metrics, folded in as files complete.
+ *
+ * Size does not depend on the number of files, and two aggregates (shards,
+ * batches, earlier uploads) combine with merge() into the aggregate of all
+ * their files.
+ */
+public class ProjectMetrics {
+
+    // quality score buckets: [0,10), [10,20) ... [90,100]
+    private static final int HISTOGRAM_BUCKETS = 10;
+
+    private long files;
+
+    private MetricStat totalLines = new MetricStat();
+    private MetricStat codeLines = new MetricStat();
+    private MetricStat commentLines = new MetricStat();
+    private MetricStat totalClasses = new MetricStat();
+    private MetricStat totalMethods = new MetricStat();
+    private MetricStat cyclomaticComplexity = new MetricStat();
+    private MetricStat codeQualityScore = new MetricStat();
+
+    private long[] qualityHistogram = new long[HISTOGRAM_BUCKETS];
+
+    public void add(Metrics m) {
+        files++;
+        totalLines.add(m.getTotalLines());
+        codeLines.add(m.getCodeLines());
+        commentLines.add(m.getCommentLines());
+        totalClasses.add(m.getTotalClasses());
+        totalMethods.add(m.getTotalMethods());
+        cyclomaticComplexity.add(m.getCyclomaticComplexity());
+        codeQualityScore.add(m.getCodeQualityScore());
+
+        int bucket = (int) (m.getCodeQualityScore() / (100.0 / HISTOGRAM_BUCKETS));
+        qualityHistogram[Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1, bucket))]++;
+    }
+
+    /**
+     * Rejects an aggregate add() and merge() can't produce, e.g. one posted
+     * by a client for merging: every statistic and the histogram must hold
+     * exactly one value per file.
+     */
+    public void validate() {
+        if (files < 0) throw new IllegalArgumentException("negative file count");
+
+        check("totalLines", totalLines);
+        check("codeLines", codeLines);
+        check("commentLines", commentLines);
+        check("totalClasses", totalClasses);
+        check("totalMethods", totalMethods);
+        check("cyclomaticComplexity", cyclomaticComplexity);
+        check("codeQualityScore", codeQualityScore);
+
+        long histogramFiles = 0;
+        for (long n : qualityHistogram) {
+            if (n < 0) throw new IllegalArgumentException("qualityHistogram: negative count");
+            histogramFiles += n;
+        }
+        if (histogramFiles != files) {
+            throw new IllegalArgumentException("qualityHistogram: counts don't add up to files");
+        }
+    }
+
+    private void check(String name, MetricStat stat) {
+        try {
+            stat.validate();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + ": " + e.getMessage());
+        }
+        if (stat.getCount() != files) throw new IllegalArgumentException(name + ": count differs from files");
+    }
+
+    public void merge(ProjectMetrics other) {
+        files += other.files;
+        totalLines.merge(other.totalLines);
+        codeLines.merge(other.codeLines);
+        commentLines.merge(other.commentLines);
+        totalClasses.merge(other.totalClasses);
+        totalMethods.merge(other.totalMethods);
+        cyclomaticComplexity.merge(other.cyclomaticComplexity);
+        codeQualityScore.merge(other.codeQualityScore);
+
+        for (int i = 0; i < HISTOGRAM_BUCKETS && i < other.qualityHistogram.length; i++) {
+            qualityHistogram[i] += other.qualityHistogram[i];
+        }
+    }
+
+    // -----------------------------
+    // Getters & Setters
+    // -----------------------------
+
+    public long getFiles() { return files; }
+    public void setFiles(long files) { this.files = files; }
+
+    public MetricStat getTotalLines() { return totalLines; }
+    public void setTotalLines(MetricStat totalLines) { this.totalLines = orEmpty(totalLines); }
+
+    public MetricStat getCodeLines() { return codeLines; }
+    public void setCodeLines(MetricStat codeLines) { this.codeLines = orEmpty(codeLines); }
+
+    public MetricStat getCommentLines() { return commentLines; }
+    public void setCommentLines(MetricStat commentLines) { this.commentLines = orEmpty(commentLines); }
+
+    public MetricStat getTotalClasses() { return totalClasses; }
+    public void setTotalClasses(MetricStat totalClasses) { this.totalClasses = orEmpty(totalClasses); }
+
+    public MetricStat getTotalMethods() { return totalMethods; }
+    public void setTotalMethods(MetricStat totalMethods) { this.totalMethods = orEmpty(totalMethods); }
+
+    public MetricStat getCyclomaticComplexity() { return cyclomaticComplexity; }
+    public void setCyclomaticComplexity(MetricStat cyclomaticComplexity) { this.cyclomaticComplexity = orEmpty(cyclomaticComplexity); }
+
+    public MetricStat getCodeQualityScore() { return codeQualityScore; }
+    public void setCodeQualityScore(MetricStat codeQualityScore) { this.codeQualityScore = orEmpty(codeQualityScore); }
+
+    private static MetricStat orEmpty(MetricStat stat) {
+        return stat == null ? new MetricStat() : stat;
+    }
+
+    public long[] getQualityHistogram() { return qualityHistogram; }
+    public void setQualityHistogram(long[] qualityHistogram) {
+        this.qualityHistogram = new long[HISTOGRAM_BUCKETS];
+        if (qualityHistogram != null) {
+            System.arraycopy(qualityHistogram, 0, this.qualityHistogram, 0,
+                    Math.min(HISTOGRAM_BUCKETS, qualityHistogram.length));
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.smartcode.analyzer.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.smartcode.analyzer.service.AnalysisService.AnalysisResult;
+import com.smartcode.analyzer.service.AnalysisService.ZipSummary;
+import com.smartcode.analyzer.util.ScratchSpace;
+import com.smartcode.analyzer.util.Section;
+import com.smartcode.analyzer.util.ZipUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Runs ZIP analyses in the background so the upload request returns at once.
+ *
+ * The upload is moved into scratch space, then a job runner (analyzer.jobs.concurrency
+ * of them, with at most analyzer.jobs.max-queued jobs waiting) analyzes it on the
+ * shared AnalysisExecutor. Progress can be polled or followed over SSE; finished
+ * jobs and their results are dropped after analyzer.jobs.retention-ms.
+ */
+@Service
+public class AnalysisJobService {
+
+    // progress events are sent at most this often per job
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final AnalysisService analysisService;
+    private final ScratchSpace scratch;
+    private final ThreadPoolExecutor runners;
+    private final long retentionMs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public AnalysisJobService(AnalysisService analysisService, ScratchSpace scratch,
+                              @Value("${analyzer.jobs.concurrency:1}") int concurrency,
+                              @Value("${analyzer.jobs.max-queued:64}") int maxQueued,
+                              @Value("${analyzer.jobs.retention-ms:3600000}") long retentionMs) {
+        this.analysisService = analysisService;
+        this.scratch = scratch;
+        this.retentionMs = retentionMs;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.runners = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), r -> {
+                    Thread t = new Thread(r, "analysis-job-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Saves the upload and queues its analysis. Throws IllegalStateException
+     * when the queue is full or there is no scratch space for the upload.
+     */
+    public Job submit(MultipartFile upload, Set<Section> include) throws IOException {
+        try (ScratchSpace.Lease lease = scratch.lease(upload.getSize())) {
+            Path zip = lease.newFile(".zip");
+            upload.transferTo(zip.toFile());
+
+            Job job = new Job(UUID.randomUUID().toString(), upload.getOriginalFilename());
+            jobs.put(job.id, job);
+
+            // the runner holds the lease until the job is finished
+            lease.retain();
+            try {
+                runners.execute(() -> run(job, lease, zip, include));
+            } catch (RejectedExecutionException e) {
+                lease.release();
+                jobs.remove(job.id);
+                throw new IllegalStateException("Job queue is full, try again later");
+            }
+            return job;
+        }
+    }
+
+    public Job get(String id) {
+        return jobs.get(id);
+    }
+
+    // Results in archive order, or null until the job is DONE
+    public List<AnalysisResult> results(String id) {
+        Job job = jobs.get(id);
+        return job != null && job.status == Status.DONE ? job.results : null;
+    }
+
+    /**
+     * Follows a job: "job-progress" events while it runs, then one
+     * "job-complete" or "job-failed" event, after which the stream ends.
+     * Returns null for an unknown job.
+     */
+    public SseEmitter subscribe(String id) {
+        Job job = jobs.get(id);
+        if (job == null) return null;
+
+        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+
+        synchronized (job) {
+            if (job.isFinished()) {
+                send(job, emitter, finalEvent(job));
+                emitter.complete();
+            } else {
+                job.emitters.add(emitter);
+                send(job, emitter, "job-progress");
+            }
+        }
+        return emitter;
+    }
+
+    private void run(Job job, ScratchSpace.Lease lease, Path zip, Set<Section> include) {
+        try {
+            job.status = Status.RUNNING;
+            job.startedAt = System.currentTimeMillis();
+
+            // sizes from the central directory; results come back in this order
+            List<Long> sizes = new ArrayList<>();
+            try (ZipFile zf = new ZipFile(zip.toFile())) {
+                for (ZipEntry e : ZipUtil.javaEntries(zf)) {
+                    sizes.add(Math.max(e.getSize(), 0));
+                    job.bytesTotal += Math.max(e.getSize(), 0);
+                }
+            }
+            job.filesTotal = sizes.size();
+
+            job.summary = analysisService.analyzeZip(zip.toFile(), include, r -> {
+                job.results.add(r);
+                job.bytesDone += sizes.get(job.filesDone);
+                job.filesDone++;
+                progress(job);
+            });
+            finish(job, Status.DONE, null);
+
+        } catch (Exception e) {
+            job.results.clear();
+            finish(job, Status.FAILED, e.getMessage());
+        } finally {
+            lease.release();
+        }
+    }
+
+    private void progress(Job job) {
+        long now = System.currentTimeMillis();
+        if (now - job.lastEventAt < PROGRESS_INTERVAL_MS) return;
+        job.lastEventAt = now;
+
+        for (SseEmitter emitter : job.emitters) {
+            send(job, emitter, "job-progress");
+        }
+    }
+
+    private void finish(Job job, Status status, String error) {
+        synchronized (job) {
+            job.error = error;
+            job.finishedAt = System.currentTimeMillis();
+            job.status = status;
+
+            for (SseEmitter emitter : job.emitters) {
+                send(job, emitter, finalEvent(job));
+                emitter.complete();
+            }
+            job.emitters.clear();
+        }
+    }
+
+    private static String finalEvent(Job job) {
+        return job.status == Status.DONE ? "job-complete" : "job-failed";
+    }
+
+    private static void send(Job job, SseEmitter emitter, String event) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(job));
+        } catch (IOException | IllegalStateException e) {
+            // client went away
+            job.emitters.remove(emitter);
+        }
+    }
+
+    // Drops finished jobs (and their results) once they are older than the retention
+    @Scheduled(fixedDelayString = "${analyzer.jobs.cleanup-interval-ms:60000}")
+    public void expire() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(j -> j.isFinished() && j.finishedAt < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runners.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("jobs", jobs.size());
+        s.put("running", runners.getActiveCount());
+        s.put("queued", runners.getQueue().size());
+        s.put("completed", runners.getCompletedTaskCount());
+        return s;
+    }
+
+    // Job state as returned by GET /api/jobs/{id} and sent with every event
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Job {
+        private final String id;
+        private final String fileName;
+        private final long createdAt = System.currentTimeMillis();
+
+        // written by the job's runner thread only
+        private volatile Status status = Status.QUEUED;
+        private volatile int filesTotal;
+        private volatile int filesDone;
+        private volatile long bytesTotal;
+        private volatile long bytesDone;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile ZipSummary summary;
+        private volatile String error;
+
+        private long lastEventAt;
+        private final List<AnalysisResult> results = new ArrayList<>();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        Job(String id, String fileName) {
+            this.id = id;
+            this.fileName = fileName;
+        }
+
+        boolean isFinished() {
+            return status == Status.DONE || status == Status.FAILED;
+        }
+
+        public String getId() { return id; }
+        public String getFileName() { return fileName; }
+        public Status getStatus() { return status; }
+        public int getFilesTotal() { return filesTotal; }
+        public int getFilesDone() { return filesDone; }
+        public long getBytesTotal() { return bytesTotal; }
+        public long getBytesDone() { return bytesDone; }
+        public ZipSummary getSummary() { return summary; }
+        public String getError() { return error; }
+
+        public long getElapsedMs() {
+            if (startedAt == 0) return 0;
+            return (isFinished() ? finishedAt : System.currentTimeMillis()) - startedAt;
+        }
+
+        public long getQueuedMs() {
+            return (startedAt == 0 ? System.currentTimeMillis() : startedAt) - createdAt;
+        }
+
+        // Remaining time at the byte rate so far; null until there is a rate
+        public Long getEtaMs() {
+            if (isFinished()) return 0L;
+            long done = bytesDone;
+            if (done == 0) return null;
+            return getElapsedMs() * (bytesTotal - done) / done;
+        }
+    }
+}
@@ -1,54 +1,641 @@
 package com.smartcode.analyzer.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.model.CallGraphSummary;
+import com.smartcode.analyzer.model.MethodTable;
 import com.smartcode.analyzer.model.Metrics;
 import com.smartcode.analyzer.model.ProgramFlow;
+import com.smartcode.analyzer.model.ProjectMetrics;
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.BudgetExceededException;
 import com.smartcode.analyzer.util.CodeParserUtil;
+import com.smartcode.analyzer.util.Deadline;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.FastScanner;
+import com.smartcode.analyzer.util.HashUtil;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPool;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ProjectCallGraph;
+import com.smartcode.analyzer.util.ScratchSpace;
+import com.smartcode.analyzer.util.Section;
+import com.smartcode.analyzer.util.SourceInput;
+import com.smartcode.analyzer.util.ZipUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @Service
 public class AnalysisService {
 
-    public AnalysisService() {}
+    private final ParserPools parserPools;
+    private final AnalysisCache cache;
+    private final DiskAnalysisCache diskCache;
+    private final IncrementalAnalyzer incremental;
+    private final AnalysisBudget budget;
+    private final AnalysisExecutor executor;
+    private final ScratchSpace scratch;
+    private final JdkTypeSolver jdkTypes;
+
+    // ZIP uploads at least this large are opened from disk with ZipFile
+    private final long randomAccessZipBytes;
+
+    // cap on a single source file sent as a raw request body
+    private final long maxRawFileBytes;
+
+    // whether ZIP entries keep incremental state (they are rarely re-uploaded one by one)
+    private final boolean incrementalZipEntries;
+
+    // limits of the project call graph (include=callgraph)
+    private final int callGraphMaxFiles;
+    private final long callGraphMaxBytes;
+    private final long callGraphMaxMillis;
+
+    public AnalysisService(ParserPools parserPools, AnalysisCache cache, DiskAnalysisCache diskCache,
+                           IncrementalAnalyzer incremental, AnalysisBudget budget, AnalysisExecutor executor,
+                           ScratchSpace scratch, JdkTypeSolver jdkTypes,
+                           @Value("${analyzer.zip.random-access-min-bytes:1048576}") long randomAccessZipBytes,
+                           @Value("${analyzer.raw.max-file-bytes:10485760}") long maxRawFileBytes,
+                           @Value("${analyzer.incremental.zip-entries:false}") boolean incrementalZipEntries,
+                           @Value("${analyzer.callgraph.max-files:5000}") int callGraphMaxFiles,
+                           @Value("${analyzer.callgraph.max-bytes:8388608}") long callGraphMaxBytes,
+                           @Value("${analyzer.callgraph.max-millis:120000}") long callGraphMaxMillis) {
+        this.parserPools = parserPools;
+        this.cache = cache;
+        this.diskCache = diskCache;
+        this.incremental = incremental;
+        this.budget = budget;
+        this.executor = executor;
+        this.scratch = scratch;
+        this.jdkTypes = jdkTypes;
+        this.randomAccessZipBytes = randomAccessZipBytes;
+        this.maxRawFileBytes = maxRawFileBytes;
+        this.incrementalZipEntries = incrementalZipEntries;
+        this.callGraphMaxFiles = callGraphMaxFiles;
+        this.callGraphMaxBytes = callGraphMaxBytes;
+        this.callGraphMaxMillis = callGraphMaxMillis;
+    }
+
+    // FULL builds the AST; FAST derives the metrics from the token stream only
+    public enum Mode {
+        FULL, FAST;
+
+        public static Mode parse(String value) {
+            if (value == null || value.isBlank()) return FULL;
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown analysis mode: " + value);
+            }
+        }
+    }
 
     public AnalysisResult analyzeFile(MultipartFile file) {
-        try (InputStream in = file.getInputStream()) {
+        return analyzeFile(file, Mode.FULL);
+    }
+
+    public AnalysisResult analyzeFile(MultipartFile file, Mode mode) {
+        return analyzeFile(file, mode, Section.ALL);
+    }
+
+    // Upload adapter; include: sections to compute and return, the others stay null
+    public AnalysisResult analyzeFile(MultipartFile file, Mode mode, Set<Section> include) {
+        return analyzeFile(file, mode, include, null);
+    }
+
+    // languageLevel: Java version to parse as, null to auto-detect
+    public AnalysisResult analyzeFile(MultipartFile file, Mode mode, Set<Section> include,
+                                      LanguageLevel languageLevel) {
+        // the declared size is checked before anything is read
+        try {
+            budget.checkBytes(file.getSize());
+        } catch (BudgetExceededException e) {
+            return tooLarge(file.getOriginalFilename(), e);
+        }
+
+        SourceInput source;
+        try {
+            source = SourceInput.of(file.getOriginalFilename(), file.getBytes());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to analyze file: " + e.getMessage(), e);
+        }
+        return analyze(source.withLanguageLevel(languageLevel), mode, include);
+    }
+
+    /**
+     * Analyzes one source file, whatever it came from (bytes, text, a file
+     * on disk, a stream; see SourceInput). Every other entry point ends here.
+     */
+    public AnalysisResult analyze(SourceInput source, Mode mode, Set<Section> include) {
+        return analyze(source, mode, Section.perFile(include), null, null, null);
+    }
+
+    /**
+     * First ZIP entry of a CRC-32 + size group, claimed in archive order.
+     * Later entries of the group wait for its result and reuse it if their
+     * content key turns out equal.
+     */
+    static class SharedEntry {
+        final String path;
+        final CompletableFuture<CodeParserUtil.Result> result = new CompletableFuture<>();
+        volatile String key;
+
+        SharedEntry(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * What the entries of one ZIP request share: the request's own deadline,
+     * which also caps every entry's, and the project call graph, if any.
+     */
+    static final class ZipRequest {
+        final Deadline deadline;
+        final ProjectCallGraph graph;
+
+        ZipRequest(Deadline deadline, ProjectCallGraph graph) {
+            this.deadline = deadline;
+            this.graph = graph;
+        }
+    }
+
+    // Claims the group of an entry; returns the entry that claimed it first, or null if this one did
+    private static SharedEntry claim(Map<String, SharedEntry> shared, SharedEntry mine, long crc, long size) {
+        return shared.putIfAbsent(crc + ":" + size, mine);
+    }
 
-            // Parse Java file (returns metrics + program flow)
-            CodeParserUtil.Result res = CodeParserUtil.parseJavaFile(in);
-            Metrics m = res.metrics;
-            ProgramFlow flow = res.flow;
+    // mine: set when this entry owns its group; first: set when another entry does;
+    // zip: the request a ZIP entry belongs to, null for a single file
+    AnalysisResult analyze(SourceInput source, Mode mode, Set<Section> include,
+                           SharedEntry mine, SharedEntry first, ZipRequest zip) {
+        Deadline deadline = zip != null ? budget.start(zip.deadline) : budget.start();
+        ProjectCallGraph graph = zip != null ? zip.graph : null;
+        try {
+            budget.checkBytes(source.size());
 
-            // ⭐ Calculate Overall Complexity (NEW LOGIC)
-            int overall =
-                    m.getCyclomaticComplexity()
-                  + m.getTotalConditionals()
-                  + m.getTotalLoops()
-                  + m.getExceptionHandlingCount();
+            // Same normalized source + same parser settings/mode/sections => same result
+            String parser = mode == Mode.FAST
+                    ? "fast"
+                    : parserPools.forLevel(source.getLanguageLevel()).getConfigKey();
+            String fullKey = HashUtil.sha256Normalized(source.bytes()) + ":" + parser;
+            String key = fullKey + Section.keySuffix(include);
+            if (mine != null) mine.key = key;
 
-            m.setOverallComplexity(overall);
+            // the first entry was submitted earlier, so it is already running
+            CodeParserUtil.Result res = first != null ? awaitShared(first, key, deadline) : null;
+            if (res == null) {
+                first = null;
+                try {
+                    res = lookupOrParse(key, fullKey, source, mode, deadline, include, graph);
+                } catch (Exception e) {
+                    if (mine != null) mine.result.completeExceptionally(e);
+                    throw e;
+                }
+                if (mine != null) mine.result.complete(res);
+            }
 
-            // Build response object
+            // Build response object (cached metrics are never modified afterwards)
             AnalysisResult result = new AnalysisResult();
-            result.setFileName(file.getOriginalFilename());
-            result.setSummary(m);
-            result.setProgramFlow(flow);
+            result.setFileName(source.getFileName());
+            if (include.contains(Section.SUMMARY)) result.setSummary(res.metrics);
+            result.setProgramFlow(res.flow);
+            result.setMethods(res.methods);
+            if (first != null) result.setDuplicateOf(first.path);
 
             return result;
 
+        } catch (BudgetExceededException e) {
+            budget.record(e);
+            if (graph != null) graph.skip();
+            return budgetExceeded(source, e, include);
         } catch (Exception e) {
             throw new RuntimeException("Failed to analyze file: " + e.getMessage(), e);
+        } finally {
+            // however the owner failed (size check, hashing, an Error), its duplicates
+            // must not wait forever: with no result they analyze on their own
+            if (mine != null) mine.result.complete(null);
+        }
+    }
+
+    // All results of an uploaded ZIP, in archive order
+    public List<AnalysisResult> analyzeZip(MultipartFile upload, Set<Section> include) throws Exception {
+        List<AnalysisResult> results = new ArrayList<>();
+        analyzeZip(upload, include, results::add);
+        return results;
+    }
+
+    /**
+     * Analyzes an uploaded ZIP, handing each result to the sink (in archive
+     * order) as soon as it is ready. Large uploads are moved into scratch
+     * space (a rename when the container already spooled them to disk) and
+     * read with random access; small ones, or any when the scratch quota is
+     * used up, are streamed.
+     */
+    public ZipSummary analyzeZip(MultipartFile upload, Set<Section> include,
+                                 AnalysisExecutor.Sink<AnalysisResult> sink) throws Exception {
+        if (upload.getSize() < randomAccessZipBytes) {
+            return analyzeZip(upload.getInputStream(), include, sink);
+        }
+
+        ScratchSpace.Lease lease;
+        try {
+            lease = scratch.lease(upload.getSize());
+        } catch (ScratchSpace.QuotaExceededException e) {
+            return analyzeZip(upload.getInputStream(), include, sink);
+        }
+
+        try (lease) {
+            Path spooled = lease.newFile(".zip");
+            // transferTo(File) lets the container move its own temp file
+            upload.transferTo(spooled.toFile());
+            return analyzeZip(spooled.toFile(), include, sink);
+        }
+    }
+
+    /**
+     * Analyzes a single source file sent as the raw request body. The body
+     * is read straight from the connection, without multipart parsing or
+     * spooling; anything over analyzer.raw.max-file-bytes is rejected.
+     */
+    public AnalysisResult analyzeBody(String fileName, InputStream body, Mode mode, Set<Section> include)
+            throws IOException {
+        return analyzeBody(fileName, body, mode, include, null);
+    }
+
+    // languageLevel: Java version to parse as, null to auto-detect
+    public AnalysisResult analyzeBody(String fileName, InputStream body, Mode mode, Set<Section> include,
+                                      LanguageLevel languageLevel) throws IOException {
+        byte[] data = body.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxRawFileBytes + 1));
+        if (data.length > maxRawFileBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Source file larger than " + maxRawFileBytes + " bytes");
+        }
+        return analyze(SourceInput.of(fileName, data).withLanguageLevel(languageLevel), mode, include);
+    }
+
+    // Only the project summary; results are folded in and dropped as they complete
+    public ZipSummary summarizeZip(MultipartFile upload) throws Exception {
+        return summarizeZip(upload, false);
+    }
+
+    // callGraph: also build the project call graph
+    public ZipSummary summarizeZip(MultipartFile upload, boolean callGraph) throws Exception {
+        Set<Section> include = callGraph
+                ? EnumSet.of(Section.SUMMARY, Section.CALLGRAPH)
+                : EnumSet.of(Section.SUMMARY);
+        return analyzeZip(upload, include, r -> { });
+    }
+
+    /**
+     * Analyzes the .java entries of a ZIP file on disk. Entries come from the
+     * central directory, so nothing else is inflated, and every worker
+     * inflates its own entry concurrently.
+     *
+     * In both ZIP variants, byte-identical entries are parsed once: the
+     * first in archive order is analyzed, the others reuse its result and
+     * name it in duplicateOf. With include=callgraph, the AST of every
+     * distinct entry within the budget is also kept for the project call
+     * graph (up to analyzer.callgraph.max-files / max-bytes), which is
+     * resolved once all entries are done and reported in the summary.
+     */
+    public ZipSummary analyzeZip(File zipFile, Set<Section> include,
+                                 AnalysisExecutor.Sink<AnalysisResult> sink) throws Exception {
+        ZipSummary summary = new ZipSummary();
+        Map<String, SharedEntry> shared = new ConcurrentHashMap<>();
+        ZipRequest request = new ZipRequest(budget.startZip(), callGraph(include));
+        Set<Section> files = Section.perFile(include);
+
+        try (ZipFile zip = new ZipFile(zipFile);
+             AnalysisExecutor.Window<AnalysisResult> window = executor.window(summary.counting(sink))) {
+
+            for (ZipEntry entry : ZipUtil.javaEntries(zip)) {
+                String path = entry.getName();
+
+                // CRC-32 and size come from the central directory
+                SharedEntry mine = new SharedEntry(path);
+                SharedEntry first = claim(shared, mine, entry.getCrc(), entry.getSize());
+
+                window.submit(() -> {
+                    try {
+                        if (request.deadline.expired()) return notStarted(path, request);
+
+                        byte[] data = ZipUtil.read(zip, entry, entryLimit());
+                        if (data == null) return tooLarge(ZipUtil.fileName(path), entryTooLarge());
+
+                        return analyze(zipEntry(path, data), Mode.FULL, files,
+                                first == null ? mine : null, first, request);
+                    } finally {
+                        // too large or unreadable (e.g. corrupt): the group's duplicates
+                        // see no key and analyze on their own
+                        mine.result.complete(null);
+                    }
+                });
+            }
+
+            window.finish();
+        }
+        if (request.graph != null) summary.callGraph = request.graph.build();
+        return summary.finish();
+    }
+
+    /**
+     * Analyzes every .java entry of a ZIP stream. The calling thread inflates
+     * entries while the executor parses them in parallel; with a request
+     * body as the stream, parsing starts while the upload is still arriving.
+     */
+    public ZipSummary analyzeZip(InputStream zip, Set<Section> include,
+                                 AnalysisExecutor.Sink<AnalysisResult> sink) throws Exception {
+        ZipSummary summary = new ZipSummary();
+        Map<String, SharedEntry> shared = new ConcurrentHashMap<>();
+        ZipRequest request = new ZipRequest(budget.startZip(), callGraph(include));
+        Set<Section> files = Section.perFile(include);
+
+        try (AnalysisExecutor.Window<AnalysisResult> window = executor.window(summary.counting(sink))) {
+
+            ZipUtil.forEachJavaEntry(zip, entryLimit(), (path, data) -> {
+                // the stream is still read to its end; only the analysis is skipped
+                if (request.deadline.expired()) {
+                    window.submit(() -> notStarted(path, request));
+                    return;
+                }
+                if (data == null) {
+                    window.submit(() -> tooLarge(ZipUtil.fileName(path), entryTooLarge()));
+                    return;
+                }
+
+                // read on this thread before the entry claims its group, so only
+                // analyze() runs between the claim and the group's release
+                CRC32 crc = new CRC32();
+                crc.update(data);
+
+                SharedEntry mine = new SharedEntry(path);
+                SharedEntry first = claim(shared, mine, crc.getValue(), data.length);
+
+                window.submit(() -> analyze(zipEntry(path, data), Mode.FULL, files,
+                        first == null ? mine : null, first, request));
+            });
+
+            window.finish();
         }
+        if (request.graph != null) summary.callGraph = request.graph.build();
+        return summary.finish();
+    }
+
+    // Most bytes inflated per ZIP entry: the byte budget, or the raw-file cap when that is off
+    private long entryLimit() {
+        return budget.getMaxBytes() > 0 ? budget.getMaxBytes() : maxRawFileBytes;
+    }
+
+    private BudgetExceededException entryTooLarge() {
+        return new BudgetExceededException(BudgetExceededException.Limit.BYTES, entryLimit());
+    }
+
+    // Reached once the whole request is out of time: reported without being read
+    private AnalysisResult notStarted(String path, ZipRequest request) {
+        if (request.graph != null) request.graph.skip();
+        return tooLarge(ZipUtil.fileName(path), request.deadline.exceeded());
+    }
+
+    private ProjectCallGraph callGraph(Set<Section> include) {
+        return include.contains(Section.CALLGRAPH)
+                ? new ProjectCallGraph(parserPools.getAuto(), jdkTypes,
+                        callGraphMaxFiles, callGraphMaxBytes, callGraphMaxMillis)
+                : null;
+    }
+
+    // Reported by its base name; its path in the archive keeps it apart for incremental re-analysis, if enabled
+    private SourceInput zipEntry(String path, byte[] data) {
+        SourceInput source = SourceInput.of(ZipUtil.fileName(path), data).withPath(path);
+        return incrementalZipEntries ? source : source.withoutState();
+    }
+
+    private CodeParserUtil.Result lookupOrParse(String key, String fullKey, SourceInput source, Mode mode,
+                                                Deadline deadline, Set<Section> include,
+                                                ProjectCallGraph graph) throws Exception {
+        CodeParserUtil.Result res = lookup(key);
+
+        // a cached full result also answers a narrower request
+        if (res == null && !key.equals(fullKey)) {
+            res = lookup(fullKey);
+            if (res != null) res = res.only(include);
+        }
+
+        if (res == null) {
+            budget.checkTokens(source.bytes());
+            res = parse(source, mode, deadline, include, graph);
+            cache.put(key, res);
+            if (diskCache.isEnabled()) diskCache.put(key, res);
+        } else if (graph != null) {
+            // no AST to share: parsed for the graph alone, within this entry's deadline
+            graph.add(source, deadline);
+        }
+        return res;
+    }
+
+    // The first entry's result if its content matches; null otherwise (a CRC-32 collision).
+    // Waits no longer than this entry's own deadline allows.
+    private static CodeParserUtil.Result awaitShared(SharedEntry first, String key, Deadline deadline)
+            throws Exception {
+        try {
+            CodeParserUtil.Result res = deadline.isSet()
+                    ? first.result.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                    : first.result.get();
+            return key.equals(first.key) ? res : null;
+        } catch (TimeoutException e) {
+            throw deadline.exceeded();
+        } catch (ExecutionException e) {
+            if (!key.equals(first.key)) return null;
+            // same content, same outcome (e.g. the same budget limit)
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    // Partial result (line counts only) instead of an error; never cached
+    private AnalysisResult budgetExceeded(SourceInput source, BudgetExceededException e,
+                                          Set<Section> include) {
+        CodeParserUtil.Result res = CodeParserUtil.linesOnly(source.bytes()).only(include);
+
+        AnalysisResult result = new AnalysisResult();
+        result.setFileName(source.getFileName());
+        if (include.contains(Section.SUMMARY)) result.setSummary(res.metrics);
+        result.setProgramFlow(res.flow);
+        result.setBudgetExceeded(e.getLimit().name());
+        result.setMessage(e.getMessage() + "; only line counts were computed");
+        return result;
+    }
+
+    // Over the byte budget (or the ZIP deadline) before anything was read: no line counts either; never cached
+    private AnalysisResult tooLarge(String fileName, BudgetExceededException e) {
+        budget.record(e);
+
+        AnalysisResult result = new AnalysisResult();
+        result.setFileName(fileName);
+        result.setBudgetExceeded(e.getLimit().name());
+        result.setMessage(e.getMessage() + "; the file was not read");
+        return result;
+    }
+
+    // Memory first, then disk (promoting disk hits into memory)
+    private CodeParserUtil.Result lookup(String key) {
+        CodeParserUtil.Result res = cache.isEnabled() ? cache.get(key) : null;
+
+        if (res == null && diskCache.isEnabled()) {
+            res = diskCache.get(key);
+            if (res != null) cache.put(key, res);
+        }
+        return res;
+    }
+
+    private CodeParserUtil.Result parse(SourceInput source, Mode mode, Deadline deadline,
+                                        Set<Section> include, ProjectCallGraph graph) throws Exception {
+
+        // Parse Java file (returns metrics + program flow);
+        // a re-upload of a known path only re-parses the edited declarations;
+        // for the call graph, one whole-file parse serves both
+        ParserPool pool = parserPools.forLevel(source.getLanguageLevel());
+        CodeParserUtil.Result res;
+        try {
+            if (mode == Mode.FAST) {
+                res = FastScanner.scan(source.bytes()).only(include);
+            } else if (graph != null) {
+                res = CodeParserUtil.parseJavaFile(source.bytes(), pool, deadline, include, cu -> graph.add(source, cu));
+            } else {
+                res = incremental.analyze(source.getStateKey(), source.bytes(), pool, deadline, include);
+            }
+        } catch (StackOverflowError e) {
+            // both the parser and the AST walk recurse once per nesting level; a file
+            // nested deeper than the worker's stack gets the same partial result as
+            // any other limit, and so do its duplicates
+            throw new BudgetExceededException(BudgetExceededException.Limit.DEPTH, 0);
+        }
+        Metrics m = res.metrics;
+
+        // ⭐ Calculate Overall Complexity (NEW LOGIC)
+        int overall =
+                m.getCyclomaticComplexity()
+              + m.getTotalConditionals()
+              + m.getTotalLoops()
+              + m.getExceptionHandlingCount();
+
+        m.setOverallComplexity(overall);
+
+        return res;
+    }
+
+    // Runtime counters for the /api/analyze/stats endpoint
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parserPools", parserPools.stats());
+        stats.put("cache", cache.stats());
+        stats.put("diskCache", diskCache.stats());
+        stats.put("incremental", incremental.stats());
+        stats.put("budget", budget.stats());
+        stats.put("executor", executor.stats());
+        stats.put("scratch", scratch.stats());
+        stats.put("jdkTypes", jdkTypes.stats());
+        return stats;
+    }
+
+    // Project summary of a ZIP analysis (trailing record of a streamed one)
+    public static class ZipSummary {
+        private final String type = "summary";
+        private final long startNanos = System.nanoTime();
+        private int files;
+        private int budgetExceeded;
+        private int parsesSaved;          // entries that reused an identical entry's result
+        private long elapsedMs;
+
+        // only fully analyzed files with a summary section are folded in
+        private final ProjectMetrics project = new ProjectMetrics();
+
+        // only with include=callgraph
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private CallGraphSummary callGraph;
+
+        // Folds every result in before passing it on
+        AnalysisExecutor.Sink<AnalysisResult> counting(AnalysisExecutor.Sink<AnalysisResult> sink) {
+            return r -> {
+                add(r);
+                sink.accept(r);
+            };
+        }
+
+        ZipSummary finish() {
+            elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            return this;
+        }
+
+        void add(AnalysisResult r) {
+            files++;
+            if (r.getDuplicateOf() != null) parsesSaved++;
+            if (r.getBudgetExceeded() != null) {
+                budgetExceeded++;
+            } else if (r.getSummary() != null) {
+                project.add(r.getSummary());
+            }
+        }
+
+        public String getType() { return type; }
+        public int getFiles() { return files; }
+        public int getBudgetExceeded() { return budgetExceeded; }
+        public int getParsesSaved() { return parsesSaved; }
+        public ProjectMetrics getProject() { return project; }
+        public CallGraphSummary getCallGraph() { return callGraph; }
+
+        public long getElapsedMs() { return elapsedMs; }
     }
 
     // Response DTO
     public static class AnalysisResult {
         private String fileName;
+
+        // null (and left out) when not in include=
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private Metrics summary;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private ProgramFlow programFlow;
 
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private MethodTable methods;
+
+        // Set only on partial results: BYTES, TOKENS or TIME
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String budgetExceeded;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String message;
+
+        // ZIP path of an identical entry whose analysis this result reuses
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String duplicateOf;
+
         public String getFileName() { return fileName;}
         public void setFileName(String fileName) { this.fileName = fileName; }
 
@@ -57,5 +644,17 @@ public class AnalysisService {
 
         public ProgramFlow getProgramFlow() { return programFlow; }
         public void setProgramFlow(ProgramFlow programFlow) { this.programFlow = programFlow; }
+
+        public MethodTable getMethods() { return methods; }
+        public void setMethods(MethodTable methods) { this.methods = methods; }
+
+        public String getBudgetExceeded() { return budgetExceeded; }
+        public void setBudgetExceeded(String budgetExceeded) { this.budgetExceeded = budgetExceeded; }
+
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+
+        public String getDuplicateOf() { return duplicateOf; }
+        public void setDuplicateOf(String duplicateOf) { this.duplicateOf = duplicateOf; }
     }
 }
@@ -0,0 +1,85 @@
+package com.smartcode.analyzer.util;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-request limits that keep one pathological upload from holding a
+ * worker (and a pooled parser) for seconds.
+ *
+ * Size and token count are checked up front; the wall-clock limit starts
+ * when the request arrives and is enforced cooperatively while parsing.
+ * A ZIP request also has a wall-clock limit of its own, which caps the
+ * deadline of every entry. A limit of 0 disables that check.
+ */
+public class AnalysisBudget {
+
+    private final long maxBytes;
+    private final long maxTokens;
+    private final long maxWallMs;
+    private final long maxZipMs;
+
+    private final LongAdder bytesExceeded = new LongAdder();
+    private final LongAdder tokensExceeded = new LongAdder();
+    private final LongAdder timeExceeded = new LongAdder();
+    private final LongAdder depthExceeded = new LongAdder();
+
+    public AnalysisBudget(long maxBytes, long maxTokens, long maxWallMs, long maxZipMs) {
+        this.maxBytes = maxBytes;
+        this.maxTokens = maxTokens;
+        this.maxWallMs = maxWallMs;
+        this.maxZipMs = maxZipMs;
+    }
+
+    public Deadline start() {
+        return Deadline.after(maxWallMs);
+    }
+
+    // One file of a ZIP request: its own limit, cut short by the request's
+    public Deadline start(Deadline zip) {
+        return Deadline.earliest(start(), zip);
+    }
+
+    public Deadline startZip() {
+        return Deadline.after(maxZipMs);
+    }
+
+    public long getMaxBytes() { return maxBytes; }
+
+    public void checkBytes(long size) {
+        if (maxBytes > 0 && size > maxBytes) {
+            throw new BudgetExceededException(BudgetExceededException.Limit.BYTES, maxBytes);
+        }
+    }
+
+    // One lexer pass, far cheaper than the parse it guards
+    public void checkTokens(ByteBuffer source) {
+        if (maxTokens > 0 && FastScanner.countTokens(source, maxTokens) > maxTokens) {
+            throw new BudgetExceededException(BudgetExceededException.Limit.TOKENS, maxTokens);
+        }
+    }
+
+    public void record(BudgetExceededException e) {
+        switch (e.getLimit()) {
+            case BYTES -> bytesExceeded.increment();
+            case TOKENS -> tokensExceeded.increment();
+            case TIME -> timeExceeded.increment();
+            case DEPTH -> depthExceeded.increment();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("maxBytes", maxBytes);
+        s.put("maxTokens", maxTokens);
+        s.put("maxWallMs", maxWallMs);
+        s.put("maxZipMs", maxZipMs);
+        s.put("bytesExceeded", bytesExceeded.sum());
+        s.put("tokensExceeded", tokensExceeded.sum());
+        s.put("timeExceeded", timeExceeded.sum());
+        s.put("depthExceeded", depthExceeded.sum());
+        return s;
+    }
+}
@@ -0,0 +1,157 @@
+package com.smartcode.analyzer.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of parse results, keyed by source hash.
+ *
+ * Bounded both by entry count and by an estimate of the retained bytes;
+ * whichever limit is hit first evicts the least recently used entries.
+ *
+ * Every get() reorders its map, so a single lock would serialize all
+ * workers on cache hits. Keys are spread over independent stripes instead,
+ * each an LRU of its own with an equal share of both limits; eviction is
+ * least recently used within a stripe, and an entry heavier than a
+ * stripe's share of the bytes is not cached.
+ */
+public class AnalysisCache {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Stripe[] stripes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry {
+        final CodeParserUtil.Result value;
+        final long weight;
+
+        Entry(CodeParserUtil.Result value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // One LRU, guarded by its own monitor
+    private static class Stripe {
+        final int maxEntries;
+        final long maxBytes;
+
+        // access-ordered: iteration starts at the least recently used entry
+        final LinkedHashMap<String, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+        long bytes;
+
+        Stripe(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public AnalysisCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, DEFAULT_STRIPES);
+    }
+
+    // stripes: rounded down to a power of two, and to no more than maxEntries
+    AnalysisCache(int maxEntries, long maxBytes, int stripes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        int n = Integer.highestOneBit(Math.max(1, Math.min(stripes, maxEntries)));
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(maxEntries / n, maxBytes / n);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxBytes > 0;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    public CodeParserUtil.Result get(String key) {
+        Stripe stripe = stripeFor(key);
+        Entry e;
+        synchronized (stripe) {
+            e = stripe.map.get(key);
+        }
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.value;
+    }
+
+    public void put(String key, CodeParserUtil.Result value) {
+        if (!isEnabled()) return;
+
+        Stripe stripe = stripeFor(key);
+        long weight = estimateBytes(key, value);
+        if (weight > stripe.maxBytes) return;
+
+        synchronized (stripe) {
+            Entry old = stripe.map.put(key, new Entry(value, weight));
+            if (old != null) stripe.bytes -= old.weight;
+            stripe.bytes += weight;
+
+            Iterator<Entry> it = stripe.map.values().iterator();
+            while ((stripe.map.size() > stripe.maxEntries || stripe.bytes > stripe.maxBytes) && it.hasNext()) {
+                Entry eldest = it.next();
+                it.remove();
+                stripe.bytes -= eldest.weight;
+                evictions.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int entries = 0;
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                entries += stripe.map.size();
+                bytes += stripe.bytes;
+            }
+        }
+
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("entries", entries);
+        s.put("bytes", bytes);
+        s.put("maxEntries", maxEntries);
+        s.put("maxBytes", maxBytes);
+        s.put("stripes", stripes.length);
+        s.put("hits", hits.sum());
+        s.put("misses", misses.sum());
+        s.put("evictions", evictions.sum());
+        return s;
+    }
+
+    // Rough retained size: object headers + fields + the strings we hold on to
+    static long estimateBytes(String key, CodeParserUtil.Result r) {
+        long size = 256 + 2L * key.length();
+        if (r.flow != null && r.flow.getTopLevelCalls() != null) {
+            for (String call : r.flow.getTopLevelCalls()) {
+                size += 48 + 2L * call.length();
+            }
+        }
+        if (r.methods != null && r.methods.getNames() != null) {
+            // six int columns + hotspots, names are usually shared with the source
+            size += 256 + 28L * r.methods.size();
+            for (String name : r.methods.getNames()) {
+                size += 48 + 2L * name.length();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,155 @@
+package com.smartcode.analyzer.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed pool of worker threads for analyzing many files of one request
+ * (ZIP uploads) in parallel.
+ *
+ * Parsing is CPU-bound, so the pool is sized to the cores rather than using
+ * virtual threads. Each request submits through a Window, which keeps at most
+ * maxInFlight files queued or running: the producer (e.g. the ZIP reader)
+ * blocks on the oldest file once the window is full, which bounds memory.
+ * Results are handed to the request's Sink in submission order, as soon as
+ * every earlier one is done.
+ *
+ * The queue shared by all requests is bounded as well. When it is full, a
+ * submitting request waits for a free slot, up to queueTimeoutMs, and then
+ * fails with an IllegalStateException (the analyzer is overloaded) instead
+ * of queueing without limit.
+ */
+public class AnalysisExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+
+    private final LongAdder queueWaits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public AnalysisExecutor(int workers, int maxInFlight) {
+        this(workers, maxInFlight, 0, 0);
+    }
+
+    // maxQueued 0 = 16 per worker; queueTimeoutMs 0 = fail at once when the queue is full
+    public AnalysisExecutor(int workers, int maxInFlight, int maxQueued, long queueTimeoutMs) {
+        if (workers <= 0) workers = Runtime.getRuntime().availableProcessors();
+        if (maxInFlight <= 0) maxInFlight = workers * 4;
+        if (maxQueued <= 0) maxQueued = workers * 16;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), r -> {
+                    Thread t = new Thread(r, "analysis-worker-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, this::waitForSlot);
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    // Rejection handler: back-pressure on the submitting request, then give up
+    private void waitForSlot(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) throw new RejectedExecutionException("Analysis executor is shut down");
+
+        queueWaits.increment();
+        boolean queued;
+        try {
+            queued = pool.getQueue().offer(task, queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the analysis queue", e);
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new IllegalStateException(
+                    "No analysis queue slot after " + queueTimeoutMs + " ms, analyzer is overloaded");
+        }
+    }
+
+    // Receives results in submission order, on the submitting thread
+    public interface Sink<T> {
+        void accept(T result) throws Exception;
+    }
+
+    public <T> Window<T> window(Sink<T> sink) {
+        return new Window<>(sink);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("workers", executor.getCorePoolSize());
+        s.put("maxInFlight", maxInFlight);
+        s.put("active", executor.getActiveCount());
+        s.put("queued", executor.getQueue().size());
+        s.put("maxQueued", maxQueued);
+        s.put("queueWaits", queueWaits.sum());
+        s.put("rejected", rejected.sum());
+        s.put("completed", executor.getCompletedTaskCount());
+        return s;
+    }
+
+    // Ordered, bounded submission for one request; close() cancels what is left
+    public class Window<T> implements AutoCloseable {
+
+        private final Deque<Future<T>> pending = new ArrayDeque<>();
+        private final Sink<T> sink;
+
+        private Window(Sink<T> sink) {
+            this.sink = sink;
+        }
+
+        public void submit(Callable<T> task) throws Exception {
+            if (pending.size() >= maxInFlight) {
+                sink.accept(await(pending.poll()));
+            }
+            pending.add(executor.submit(task));
+
+            // pass on whatever is already done without waiting
+            while (!pending.isEmpty() && pending.peek().isDone()) {
+                sink.accept(await(pending.poll()));
+            }
+        }
+
+        // Waits for everything submitted
+        public void finish() throws Exception {
+            while (!pending.isEmpty()) {
+                sink.accept(await(pending.poll()));
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Future<T> f : pending) f.cancel(true);
+            pending.clear();
+        }
+
+        private T await(Future<T> f) throws Exception {
+            try {
+                return f.get();
+            } catch (ExecutionException e) {
+                // rethrow what the task threw, as the sequential loop would have
+                if (e.getCause() instanceof Exception cause) throw cause;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.smartcode.analyzer.util;
+
+/**
+ * Thrown when a request goes over one of its AnalysisBudget limits.
+ * The service turns it into a partial result rather than an error.
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    public enum Limit { BYTES, TOKENS, TIME, DEPTH }
+
+    private final Limit limit;
+    private final long max;
+
+    public BudgetExceededException(Limit limit, long max) {
+        super(switch (limit) {
+            case BYTES -> "File is larger than " + max + " bytes";
+            case TOKENS -> "File has more than " + max + " tokens";
+            case TIME -> "Analysis took longer than " + max + " ms";
+            // max: unused, the limit is the worker's stack
+            case DEPTH -> "File is nested too deeply to analyze";
+        });
+        this.limit = limit;
+        this.max = max;
+    }
+
+    public Limit getLimit() { return limit; }
+    public long getMax() { return max; }
+}
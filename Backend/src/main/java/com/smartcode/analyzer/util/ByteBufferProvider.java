@@ -0,0 +1,71 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.Provider;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Feeds JavaParser straight from a UTF-8 byte buffer, decoding only as many
+ * characters as the tokenizer asks for. Avoids materializing the whole
+ * source as a String. Malformed input is replaced, like new String(bytes, UTF_8).
+ *
+ * The tokenizer pulls input as it goes, so every read is also where a
+ * request deadline is checked. JavaParser turns any exception from here into
+ * a parse problem, so callers must ask deadlineHit() after parsing.
+ */
+public class ByteBufferProvider implements Provider {
+
+    private final ByteBuffer in;
+    private final Deadline deadline;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private boolean flushed;
+    private boolean deadlineHit;
+
+    public ByteBufferProvider(ByteBuffer source) {
+        this(source, Deadline.NONE);
+    }
+
+    public ByteBufferProvider(ByteBuffer source, Deadline deadline) {
+        this.in = source.duplicate();
+        this.deadline = deadline;
+    }
+
+    public boolean deadlineHit() {
+        return deadlineHit;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int len) {
+        if (flushed) return -1;
+        if (len == 0) return 0;
+
+        if (deadline.expired()) {
+            // aborts the parse; the caller reports the deadline
+            deadlineHit = true;
+            deadline.check();
+        }
+
+        CharBuffer out = CharBuffer.wrap(buffer, offset, len);
+
+        // Either fills the window (overflow) or consumes all remaining input
+        CoderResult r = decoder.decode(in, out, true);
+        if (r.isUnderflow()) {
+            flushed = decoder.flush(out).isUnderflow();
+        }
+
+        int n = out.position() - offset;
+        return n == 0 && flushed ? -1 : n;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,259 @@
+package com.smartcode.analyzer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Directed call graph over int node ids (0..n-1), stored as adjacency
+ * arrays: the callees of node i are targets[offsets[i] .. offsets[i+1]).
+ * Duplicate edges are dropped when the graph is built, so fan-in/fan-out
+ * count distinct callers/callees.
+ *
+ * Strongly connected components, recursion cycles and the longest call
+ * chain are all computed without recursion, so deep chains can't overflow
+ * the stack, in time linear in nodes + edges.
+ */
+public class CallGraph {
+
+    private final int nodes;
+    private final int[] offsets;
+    private final int[] targets;
+
+    // computed on first use
+    private int[] component;
+    private int components;
+
+    private CallGraph(int nodes, int[] offsets, int[] targets) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    public static class Builder {
+        private int nodes;
+        private long[] edges = new long[64];
+        private int edgeCount;
+
+        public int addNode() {
+            return nodes++;
+        }
+
+        public void addEdge(int from, int to) {
+            if (edgeCount == edges.length) edges = Arrays.copyOf(edges, edgeCount * 2);
+            edges[edgeCount++] = ((long) from << 32) | to;
+        }
+
+        public CallGraph build() {
+            // sorted by caller, then callee; duplicates end up adjacent
+            long[] sorted = Arrays.copyOf(edges, edgeCount);
+            Arrays.sort(sorted);
+
+            int[] offsets = new int[nodes + 1];
+            int[] targets = new int[sorted.length];
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && sorted[i] == sorted[i - 1]) continue;
+                offsets[(int) (sorted[i] >>> 32) + 1]++;
+                targets[n++] = (int) sorted[i];
+            }
+            for (int i = 0; i < nodes; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            return new CallGraph(nodes, offsets, Arrays.copyOf(targets, n));
+        }
+    }
+
+    public int nodeCount() { return nodes; }
+    public int edgeCount() { return targets.length; }
+
+    public int fanOut(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    // Distinct callers of every node
+    public int[] fanIn() {
+        int[] in = new int[nodes];
+        for (int t : targets) in[t]++;
+        return in;
+    }
+
+    // Component id of every node; components are numbered callees first
+    public int[] components() {
+        if (component == null) tarjan();
+        return component;
+    }
+
+    public int componentCount() {
+        if (component == null) tarjan();
+        return components;
+    }
+
+    /**
+     * Recursion cycles: components of more than one method, and methods
+     * calling themselves. Each is a list of node ids, smallest first.
+     */
+    public List<int[]> cycles() {
+        int[] comp = components();
+        int[] size = new int[components];
+        for (int c : comp) size[c]++;
+
+        List<int[]> cycles = new ArrayList<>();
+        int[][] members = new int[components][];
+        int[] filled = new int[components];
+
+        for (int v = 0; v < nodes; v++) {
+            int c = comp[v];
+            if (size[c] > 1) {
+                if (members[c] == null) {
+                    members[c] = new int[size[c]];
+                    cycles.add(members[c]);
+                }
+                members[c][filled[c]++] = v;
+            } else if (callsItself(v)) {
+                cycles.add(new int[] {v});
+            }
+        }
+        return cycles;
+    }
+
+    private boolean callsItself(int v) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (targets[e] == v) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Longest call chain, one node id per level, over the graph with every
+     * recursion cycle collapsed into one level. Empty for an empty graph.
+     */
+    public int[] longestChain() {
+        if (nodes == 0) return new int[0];
+
+        int[] comp = components();
+
+        // depth[c]: levels from component c down; via[c]: the edge that achieves it
+        int[] depth = new int[components];
+        int[] viaFrom = new int[components];
+        int[] viaTo = new int[components];
+        Arrays.fill(viaTo, -1);
+        int[] entry = new int[components];
+
+        // callees get lower component numbers, so ascending order is bottom-up
+        int[][] byComponent = membersByComponent(comp);
+        for (int c = 0; c < components; c++) {
+            depth[c] = 1;
+            entry[c] = byComponent[c][0];
+            for (int v : byComponent[c]) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int d = comp[targets[e]];
+                    if (d != c && depth[d] + 1 > depth[c]) {
+                        depth[c] = depth[d] + 1;
+                        viaFrom[c] = v;
+                        viaTo[c] = targets[e];
+                    }
+                }
+            }
+        }
+
+        int top = 0;
+        for (int c = 1; c < components; c++) {
+            if (depth[c] > depth[top]) top = c;
+        }
+
+        // a collapsed cycle is reported by the member that calls on
+        int[] chain = new int[depth[top]];
+        int c = top;
+        int at = entry[top];
+        for (int i = 0; i < chain.length; i++) {
+            if (viaTo[c] < 0) {
+                chain[i] = at;
+                break;
+            }
+            chain[i] = viaFrom[c];
+            at = viaTo[c];
+            c = comp[at];
+        }
+        return chain;
+    }
+
+    private int[][] membersByComponent(int[] comp) {
+        int[] size = new int[components];
+        for (int c : comp) size[c]++;
+
+        int[][] members = new int[components][];
+        for (int c = 0; c < components; c++) members[c] = new int[size[c]];
+
+        int[] filled = new int[components];
+        for (int v = 0; v < nodes; v++) {
+            members[comp[v]][filled[comp[v]]++] = v;
+        }
+        return members;
+    }
+
+    // Iterative Tarjan; a component is numbered once everything it reaches is
+    private void tarjan() {
+        int[] comp = new int[nodes];
+        int[] index = new int[nodes];
+        int[] low = new int[nodes];
+        int[] nextEdge = new int[nodes];
+        boolean[] onStack = new boolean[nodes];
+        Arrays.fill(index, -1);
+
+        int[] stack = new int[nodes];
+        int sp = 0;
+        int[] path = new int[nodes];
+        int pp = 0;
+
+        int counter = 0;
+        int count = 0;
+
+        for (int root = 0; root < nodes; root++) {
+            if (index[root] >= 0) continue;
+
+            path[pp++] = root;
+            index[root] = low[root] = counter++;
+            nextEdge[root] = offsets[root];
+            stack[sp++] = root;
+            onStack[root] = true;
+
+            while (pp > 0) {
+                int v = path[pp - 1];
+
+                if (nextEdge[v] < offsets[v + 1]) {
+                    int w = targets[nextEdge[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        nextEdge[w] = offsets[w];
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        path[pp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // all callees of v done
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        comp[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                pp--;
+                if (pp > 0) {
+                    int parent = path[pp - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+
+        this.component = comp;
+        this.components = count;
+    }
+}
@@ -1,127 +1,162 @@
 package com.smartcode.analyzer.util;
 
+import com.smartcode.analyzer.model.MethodTable;
 import com.smartcode.analyzer.model.Metrics;
 import com.smartcode.analyzer.model.ProgramFlow;
 
 import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseStart;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
 
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.VariableDeclarator;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.Consumer;
 
-import com.github.javaparser.ast.expr.ConditionalExpr;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-
-import com.github.javaparser.ast.stmt.*;
+public class CodeParserUtil {
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.stream.Collectors;
+    // Bump whenever the metrics produced for the same source change,
+    // so persisted results from older builds are not served
+    public static final int ANALYZER_VERSION = 5;
+
+    // Settings every pooled parser is built with; ParserPools varies the language level
+    public static ParserConfiguration defaultConfiguration() {
+        return new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
+                .setAttributeComments(false)
+                .setLexicalPreservationEnabled(false)
+                .setPreprocessUnicodeEscapes(true);
+    }
 
-public class CodeParserUtil {
+    // source: UTF-8 bytes between position and limit (not consumed)
+    public static Result parseJavaFile(ByteBuffer source, ParserPool pool) throws Exception {
+        return parseJavaFile(source, pool, Deadline.NONE, Section.ALL);
+    }
 
-    private static final JavaParser parser = new JavaParser(
-            new ParserConfiguration()
-                    .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17)
-                    .setAttributeComments(false)
-                    .setLexicalPreservationEnabled(false)
-                    .setPreprocessUnicodeEscapes(true)
-    );
+    // Throws BudgetExceededException once the deadline passes; include limits what is collected
+    public static Result parseJavaFile(ByteBuffer source, ParserPool pool, Deadline deadline,
+                                      Set<Section> include) throws Exception {
+        return parseJavaFile(source, pool, deadline, include, cu -> { });
+    }
 
-    public static Result parseJavaFile(InputStream in) throws Exception {
+    // Also hands the AST to ast once it has been walked (e.g. to keep it for the project call graph)
+    public static Result parseJavaFile(ByteBuffer source, ParserPool pool, Deadline deadline,
+                                      Set<Section> include, Consumer<CompilationUnit> ast) throws Exception {
 
-        String code = new String(in.readAllBytes(), StandardCharsets.UTF_8);
-        code = code.replace("\r\n", "\n").replace("\r", "\n");
+        // Line counts come straight from the bytes; JavaParser handles CR/CRLF itself
+        SourceScanner.LineStats lines = SourceScanner.scan(source);
 
-        ParseResult<CompilationUnit> result = parser.parse(code);
-        CompilationUnit cu = result.getResult()
+        CompilationUnit cu = parse(ParseStart.COMPILATION_UNIT, source, pool, deadline).getResult()
                 .orElseThrow(() -> new Exception("Failed to parse Java file"));
 
-        Metrics m = new Metrics();
+        // One traversal collects every counter, the call list and the depth
+        Result res = toResult(MetricsVisitor.collect(cu, deadline, include), lines, include);
+        ast.accept(cu);
+        return res;
+    }
 
-        // Total lines
-        m.setTotalLines(code.split("\n").length);
+    // Hold the parser only while parsing; the AST walk afterwards doesn't need it.
+    // With an auto-detecting pool, a source that doesn't parse cleanly is parsed again at its fallback level.
+    static <N extends Node> ParseResult<N> parse(ParseStart<N> start, ByteBuffer source, ParserPool pool,
+                                                 Deadline deadline) throws InterruptedException {
 
-        // Classes
-        List<ClassOrInterfaceDeclaration> classes = cu.findAll(ClassOrInterfaceDeclaration.class);
-        m.setTotalClasses(classes.size());
+        ByteBufferProvider provider = new ByteBufferProvider(source, deadline);
+        ParseResult<N> result;
 
-        // Methods
-        List<MethodDeclaration> methods = cu.findAll(MethodDeclaration.class);
-        m.setTotalMethods(methods.size());
+        JavaParser parser = pool.acquire(deadline);
+        try {
+            result = parser.parse(start, provider);
+        } finally {
+            pool.release(parser);
+        }
 
-        // Variables
-        m.setTotalVariables(cu.findAll(VariableDeclarator.class).size());
+        if (provider.deadlineHit()) deadline.check();
 
-        // Conditionals
-        int ifs = cu.findAll(IfStmt.class).size();
-        int switches = cu.findAll(SwitchStmt.class).size();
-        int ternary = cu.findAll(ConditionalExpr.class).size();
-        m.setTotalConditionals(ifs + switches + ternary);
+        if (!result.isSuccessful() && pool.getFallback() != null) {
+            return parse(start, source, pool.getFallback(), deadline);
+        }
+        return result;
+    }
 
-        // Loops
-        int loops = cu.findAll(ForStmt.class).size()
-                + cu.findAll(ForEachStmt.class).size()
-                + cu.findAll(WhileStmt.class).size()
-                + cu.findAll(DoStmt.class).size();
-        m.setTotalLoops(loops);
+    // What is left when a budget is exceeded: line counts, nothing from the AST
+    public static Result linesOnly(ByteBuffer source) {
+        SourceScanner.LineStats lines = SourceScanner.scan(source);
 
-        // Exception blocks
-        int tries = cu.findAll(TryStmt.class).size();
-        int catches = cu.findAll(CatchClause.class).size();
-        int throwsCount = cu.findAll(ThrowStmt.class).size();
-        m.setExceptionHandlingCount(tries + catches + throwsCount);
+        Metrics m = new Metrics();
+        m.setTotalLines(lines.totalLines);
+        m.setBlankLines(lines.blankLines);
+        m.setCommentLines(lines.commentLines);
+        m.setCodeLines(lines.codeLines);
 
-        // Cyclomatic Complexity
-        int switchEntries = cu.findAll(SwitchEntry.class).size();
-        int cyclo = 1
-                + m.getTotalConditionals()
-                + m.getTotalLoops()
-                + catches
-                + ternary
-                + switchEntries;
+        return new Result(m, new ProgramFlow(new ArrayList<>(), 0));
+    }
+
+    static Result toResult(MetricsVisitor v, SourceScanner.LineStats lines, Set<Section> include) {
+
+        Metrics m = new Metrics();
 
+        // Lines
+        m.setTotalLines(lines.totalLines);
+        m.setBlankLines(lines.blankLines);
+        m.setCommentLines(lines.commentLines);
+        m.setCodeLines(lines.codeLines);
+
+        m.setTotalClasses(v.getClasses());
+        m.setTotalMethods(v.getMethods());
+        m.setTotalVariables(v.getVariables());
+        m.setTotalConditionals(v.getConditionals());
+        m.setTotalLoops(v.getLoops());
+        m.setExceptionHandlingCount(v.getExceptionBlocks());
+
+        // Cyclomatic Complexity
+        int cyclo = v.getCyclomaticComplexity();
         m.setCyclomaticComplexity(cyclo);
 
         // DO NOT set overall complexity here.
         // It is calculated in AnalysisService.
 
         // Code Quality
-        double quality = Math.max(0, 100 - cyclo * 2.5);
-        m.setCodeQualityScore(Math.round(quality * 100.0) / 100.0);
+        m.setCodeQualityScore(qualityScore(cyclo));
 
-        // Program Flow (improved)
-        List<String> orderedCalls = cu.findAll(MethodCallExpr.class)
-                .stream()
-                .map(MethodCallExpr::getNameAsString)
-                .collect(Collectors.toList());
+        // Program Flow
+        ProgramFlow flow = include.contains(Section.FLOW)
+                ? new ProgramFlow(v.getCalls(), v.getMaxDepth())
+                : null;
 
-        List<String> finalCalls = orderedCalls.stream()
-                .distinct()
-                .limit(10)
-                .collect(Collectors.toList());
+        MethodTable methods = include.contains(Section.METHODS) ? v.getMethodTable() : null;
 
-        int maxDepth = methods.stream()
-                .mapToInt(md -> md.findAll(MethodCallExpr.class).size() > 0 ? 2 : 1)
-                .max()
-                .orElse(1);
-
-        ProgramFlow flow = new ProgramFlow(finalCalls, maxDepth);
+        return new Result(m, flow, methods);
+    }
 
-        return new Result(m, flow);
+    // 100 minus 2.5 per complexity point, rounded to two decimals
+    public static double qualityScore(int cyclomaticComplexity) {
+        double quality = Math.max(0, 100 - cyclomaticComplexity * 2.5);
+        return Math.round(quality * 100.0) / 100.0;
     }
 
     public static class Result {
         public Metrics metrics;
-        public ProgramFlow flow;
+        public ProgramFlow flow;       // null when not requested
+        public MethodTable methods;   // null when not requested (or in fast mode)
 
         public Result(Metrics metrics, ProgramFlow flow) {
+            this(metrics, flow, null);
+        }
+
+        public Result(Metrics metrics, ProgramFlow flow, MethodTable methods) {
             this.metrics = metrics;
             this.flow = flow;
+            this.methods = methods;
+        }
+
+        // Copy without the sections that were not asked for
+        public Result only(Set<Section> include) {
+            return new Result(metrics,
+                    include.contains(Section.FLOW) ? flow : null,
+                    include.contains(Section.METHODS) ? methods : null);
         }
     }
 }
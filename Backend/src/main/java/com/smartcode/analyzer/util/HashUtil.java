@@ -0,0 +1,65 @@
+package com.smartcode.analyzer.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtil {
+
+    /**
+     * SHA-256 of the source with CRLF and lone CR treated as LF, so the same
+     * file checked out on Windows and Linux hashes identically.
+     */
+    public static String sha256Normalized(byte[] data, int off, int len) {
+        MessageDigest md = sha256();
+        int end = off + len;
+        int start = off;
+
+        for (int i = off; i < end; i++) {
+            if (data[i] != '\r') continue;
+
+            md.update(data, start, i - start);
+            md.update((byte) '\n');
+
+            // CRLF: the LF was just written, skip the original one
+            if (i + 1 < end && data[i + 1] == '\n') i++;
+            start = i + 1;
+        }
+        md.update(data, start, end - start);
+
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    // Same hash over a buffer's remaining bytes (heap, direct or memory-mapped); position is left alone
+    public static String sha256Normalized(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            return sha256Normalized(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+        }
+
+        MessageDigest md = sha256();
+        int end = buf.limit();
+        int start = buf.position();
+
+        for (int i = start; i < end; i++) {
+            if (buf.get(i) != '\r') continue;
+
+            md.update(buf.duplicate().position(start).limit(i));
+            md.update((byte) '\n');
+
+            if (i + 1 < end && buf.get(i + 1) == '\n') i++;
+            start = i + 1;
+        }
+        md.update(buf.duplicate().position(start).limit(end));
+
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
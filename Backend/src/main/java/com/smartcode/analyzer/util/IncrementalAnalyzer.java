@@ -0,0 +1,256 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-analyzes an edited file by parsing only the declarations that changed.
+ *
+ * For every file path it keeps the metrics of each top-level type / member
+ * keyed by the fingerprint of its source span (see DeclarationSplitter).
+ * When the same path comes back with an unchanged skeleton, declarations
+ * whose fingerprint is known are reused, the others are parsed on their own,
+ * and the pieces are merged into the file totals. Anything unexpected
+ * (changed skeleton, a declaration that doesn't parse alone, unknown path)
+ * falls back to a normal whole-file parse, which also refreshes the state;
+ * its single metrics walk collects each declaration into a visitor of its
+ * own, so keeping the state costs no extra pass over the AST.
+ */
+public class IncrementalAnalyzer {
+
+    private final int maxFiles;
+
+    // path -> last known declarations, least recently used first
+    private final LinkedHashMap<String, FileState> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder fullParses = new LongAdder();
+    private final LongAdder incrementalParses = new LongAdder();
+    private final LongAdder declarationsReused = new LongAdder();
+    private final LongAdder declarationsParsed = new LongAdder();
+
+    // Metrics of one declaration; method lines are relative to `line`
+    private static class Declaration {
+        final MetricsVisitor metrics;
+        final int line;
+
+        Declaration(MetricsVisitor metrics, int line) {
+            this.metrics = metrics;
+            this.line = line;
+        }
+    }
+
+    private static class FileState {
+        final String skeletonHash;
+        final MetricsVisitor skeleton;
+        final Map<String, Declaration> declarations;
+        final Set<Section> collected;     // sections the stored metrics cover
+        final String configKey;           // parser settings they were parsed with
+
+        FileState(String skeletonHash, MetricsVisitor skeleton, Map<String, Declaration> declarations,
+                  Set<Section> collected, String configKey) {
+            this.skeletonHash = skeletonHash;
+            this.skeleton = skeleton;
+            this.declarations = declarations;
+            this.collected = collected;
+            this.configKey = configKey;
+        }
+    }
+
+    public IncrementalAnalyzer(int maxFiles) {
+        this.maxFiles = maxFiles;
+    }
+
+    public boolean isEnabled() {
+        return maxFiles > 0;
+    }
+
+    // path identifies the file across uploads; null analyzes without keeping state.
+    // State is only reused by requests parsing with the same settings.
+    public CodeParserUtil.Result analyze(String path, ByteBuffer source, ParserPool pool, Deadline deadline,
+                                         Set<Section> include) throws Exception {
+
+        if (!isEnabled() || path == null) {
+            fullParses.increment();
+            return CodeParserUtil.parseJavaFile(source, pool, deadline, include);
+        }
+
+        SourceScanner.LineStats lines = SourceScanner.scan(source);
+        DeclarationSplitter.Layout layout = DeclarationSplitter.split(source);
+
+        FileState previous;
+        synchronized (files) {
+            previous = files.get(path);
+        }
+
+        if (layout != null && previous != null && previous.skeletonHash.equals(layout.skeletonHash)
+                && previous.collected.containsAll(include) && previous.configKey.equals(pool.getConfigKey())) {
+            CodeParserUtil.Result res = reanalyze(path, source, lines, layout, previous, pool, deadline, include);
+            if (res != null) return res;
+        }
+
+        return analyzeFully(path, source, lines, layout, pool, deadline, include);
+    }
+
+    // Merge known declarations with freshly parsed changed ones; null if any fails to parse alone
+    private CodeParserUtil.Result reanalyze(String path, ByteBuffer source, SourceScanner.LineStats lines,
+                                            DeclarationSplitter.Layout layout, FileState previous,
+                                            ParserPool pool, Deadline deadline, Set<Section> include)
+            throws InterruptedException {
+
+        Map<String, Declaration> declarations = new HashMap<>();
+        MetricsVisitor merged = new MetricsVisitor();
+        merged.add(previous.skeleton, 0);
+
+        int reused = 0;
+        int parsed = 0;
+
+        for (DeclarationSplitter.Span span : layout.spans()) {
+            Declaration d = declarations.get(span.hash);
+            if (d == null) d = previous.declarations.get(span.hash);
+
+            if (d != null) {
+                reused++;
+            } else {
+                // keep the stored state as complete as it was
+                d = parseAlone(source, span, pool, deadline, previous.collected);
+                if (d == null) return null;
+                parsed++;
+            }
+
+            declarations.put(span.hash, d);
+            merged.add(d.metrics, span.line - d.line);
+        }
+
+        remember(path, new FileState(layout.skeletonHash, previous.skeleton, declarations, previous.collected,
+                previous.configKey));
+
+        incrementalParses.increment();
+        declarationsReused.add(reused);
+        declarationsParsed.add(parsed);
+        return CodeParserUtil.toResult(merged, lines, include);
+    }
+
+    private Declaration parseAlone(ByteBuffer source, DeclarationSplitter.Span span, ParserPool pool,
+                                   Deadline deadline, Set<Section> include) throws InterruptedException {
+
+        ByteBuffer slice = source.duplicate().position(span.start).limit(span.end);
+
+        ParseResult<? extends Node> result = span.typeDeclaration
+                ? CodeParserUtil.parse(ParseStart.COMPILATION_UNIT, slice, pool, deadline)
+                : CodeParserUtil.parse(ParseStart.CLASS_BODY, slice, pool, deadline);
+
+        if (!result.isSuccessful() || result.getResult().isEmpty()) return null;
+
+        // parsed on its own, the declaration starts at line 1
+        return new Declaration(MetricsVisitor.collect(result.getResult().get(), deadline, include), 1);
+    }
+
+    private CodeParserUtil.Result analyzeFully(String path, ByteBuffer source, SourceScanner.LineStats lines,
+                                               DeclarationSplitter.Layout layout, ParserPool pool, Deadline deadline,
+                                               Set<Section> include) throws Exception {
+
+        fullParses.increment();
+
+        ParseResult<CompilationUnit> result =
+                CodeParserUtil.parse(ParseStart.COMPILATION_UNIT, source, pool, deadline);
+        CompilationUnit cu = result.getResult()
+                .orElseThrow(() -> new Exception("Failed to parse Java file"));
+
+        List<Node> nodes = layout != null && result.isSuccessful() ? declarationNodes(cu, layout) : null;
+        if (nodes == null) {
+            synchronized (files) {
+                files.remove(path);
+            }
+            return CodeParserUtil.toResult(MetricsVisitor.collect(cu, deadline, include), lines, include);
+        }
+
+        // one walk: the skeleton, plus a visitor per declaration, merged in source order for the totals
+        Map<Node, MetricsVisitor> parts = new IdentityHashMap<>();
+        for (Node node : nodes) parts.put(node, null);
+        MetricsVisitor skeleton = MetricsVisitor.collect(cu, parts, deadline, include);
+
+        MetricsVisitor merged = new MetricsVisitor();
+        merged.add(skeleton, 0);
+        Map<String, Declaration> declarations = new HashMap<>();
+        List<DeclarationSplitter.Span> spans = layout.spans();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            DeclarationSplitter.Span span = spans.get(i);
+            MetricsVisitor part = parts.get(nodes.get(i));
+            merged.add(part, 0);
+            declarations.putIfAbsent(span.hash, new Declaration(part, span.line));
+        }
+
+        remember(path, new FileState(layout.skeletonHash, skeleton, declarations, include, pool.getConfigKey()));
+        return CodeParserUtil.toResult(merged, lines, include);
+    }
+
+    // The AST node of every span, in source order; null if the AST doesn't line up with the layout
+    private static List<Node> declarationNodes(CompilationUnit cu, DeclarationSplitter.Layout layout) {
+        List<TypeDeclaration<?>> types = cu.getTypes();
+        if (types.size() != layout.types.size()) return null;
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < types.size(); i++) {
+            TypeDeclaration<?> type = types.get(i);
+            DeclarationSplitter.TypeSpan span = layout.types.get(i);
+
+            if (span.members == null) {
+                if (!lineUp(type, span.whole, nodes)) return null;
+                continue;
+            }
+
+            List<BodyDeclaration<?>> members = type.getMembers();
+            if (members.size() != span.members.size()) return null;
+
+            for (int j = 0; j < members.size(); j++) {
+                if (!lineUp(members.get(j), span.members.get(j), nodes)) return null;
+            }
+        }
+        return nodes;
+    }
+
+    private static boolean lineUp(Node node, DeclarationSplitter.Span span, List<Node> nodes) {
+        int line = node.getRange().map(r -> r.begin.line).orElse(-1);
+        if (line != span.line) return false;
+
+        nodes.add(node);
+        return true;
+    }
+
+    private void remember(String path, FileState state) {
+        synchronized (files) {
+            files.put(path, state);
+            if (files.size() > maxFiles) {
+                files.remove(files.keySet().iterator().next());
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        synchronized (files) {
+            s.put("files", files.size());
+        }
+        s.put("maxFiles", maxFiles);
+        s.put("fullParses", fullParses.sum());
+        s.put("incrementalParses", incrementalParses.sum());
+        s.put("declarationsReused", declarationsReused.sum());
+        s.put("declarationsParsed", declarationsParsed.sum());
+        return s;
+    }
+}
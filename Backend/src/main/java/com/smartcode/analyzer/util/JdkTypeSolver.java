@@ -0,0 +1,130 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ReflectionTypeSolver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * JDK type solver shared by every call graph build in the process.
+ *
+ * Resolving one simple name makes the symbol solver try it in every
+ * imported package before java.lang, and a miss costs a ClassNotFoundException,
+ * so the same java.* names are looked up thousands of times per upload. The
+ * answers (found or not) are kept in an LRU map from fully-qualified name to
+ * resolved declaration, bounded by entry count, so the common java.lang /
+ * java.util types stay however many rare ones pass through. JDK
+ * declarations never refer to uploaded types, so one instance is safe to
+ * share across workers and uploads.
+ *
+ * It never takes a parent: the combined solver of each build adds it as an
+ * element, but the declarations it hands out stay rooted here, so their
+ * own lookups (supertypes, signatures) go through the same map.
+ */
+public class JdkTypeSolver implements TypeSolver {
+
+    // Looked up once at startup, so the first upload doesn't pay for them
+    private static final String[] PREWARM = {
+            "java.lang.Object", "java.lang.String", "java.lang.StringBuilder", "java.lang.Math",
+            "java.lang.Integer", "java.lang.Long", "java.lang.Double", "java.lang.Boolean",
+            "java.lang.Character", "java.lang.System", "java.lang.Thread", "java.lang.Exception",
+            "java.lang.RuntimeException", "java.lang.IllegalArgumentException",
+            "java.lang.IllegalStateException", "java.lang.Iterable", "java.lang.Comparable",
+            "java.lang.Enum", "java.lang.Record", "java.lang.Class",
+            "java.util.List", "java.util.ArrayList", "java.util.Map", "java.util.HashMap",
+            "java.util.Set", "java.util.HashSet", "java.util.Collection", "java.util.Collections",
+            "java.util.Arrays", "java.util.Objects", "java.util.Optional", "java.util.Iterator",
+            "java.util.stream.Stream", "java.util.stream.Collectors", "java.util.function.Function",
+            "java.io.PrintStream", "java.io.IOException"
+    };
+
+    private final ReflectionTypeSolver reflection = new ReflectionTypeSolver();
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, SymbolReference<ResolvedReferenceTypeDeclaration>> cache =
+            new LinkedHashMap<>(256, 0.75f, true);
+    private final int maxEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // maxEntries 0 or less = no caching
+    public JdkTypeSolver(int maxEntries) {
+        this.maxEntries = maxEntries;
+        reflection.setParent(this);
+    }
+
+    // Resolves the common java.lang / java.util types and loads their members
+    public void prewarm() {
+        for (String name : PREWARM) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> ref = tryToSolveType(name);
+            if (ref.isSolved()) {
+                try {
+                    ref.getCorrespondingDeclaration().getDeclaredMethods();
+                } catch (RuntimeException e) {
+                    // a type this JDK doesn't have; nothing to warm
+                }
+            }
+        }
+    }
+
+    @Override
+    public TypeSolver getParent() {
+        return null;
+    }
+
+    // Shared by many combined solvers, so none of them becomes its parent
+    @Override
+    public void setParent(TypeSolver parent) {
+    }
+
+    @Override
+    public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+        // project types are asked here too when the uploaded sources don't have them
+        if (!name.startsWith("java.") && !name.startsWith("javax.")) {
+            return SymbolReference.unsolved();
+        }
+
+        SymbolReference<ResolvedReferenceTypeDeclaration> ref;
+        synchronized (cache) {
+            ref = cache.get(name);
+        }
+        if (ref != null) {
+            hits.increment();
+            return ref;
+        }
+        misses.increment();
+
+        // may recurse into this solver (supertypes), so not under the lock
+        ref = reflection.tryToSolveType(name);
+        if (maxEntries > 0) {
+            synchronized (cache) {
+                cache.putIfAbsent(name, ref);
+                Iterator<String> it = cache.keySet().iterator();
+                while (cache.size() > maxEntries && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+        }
+        return ref;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        synchronized (cache) {
+            s.put("entries", cache.size());
+        }
+        s.put("maxEntries", maxEntries);
+        s.put("hits", hits.sum());
+        s.put("misses", misses.sum());
+        s.put("evictions", evictions.sum());
+        return s;
+    }
+}
@@ -0,0 +1,405 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import com.github.javaparser.ast.stmt.*;
+
+import com.smartcode.analyzer.model.MethodTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects every counter CodeParserUtil needs in a single walk of the AST.
+ *
+ * Children are visited in getChildNodes() order, which is the same pre-order
+ * that Node.findAll() uses, so the call list comes out in exactly the order
+ * the old per-type findAll() passes produced. (VoidVisitorAdapter visits
+ * e.g. call arguments before the call scope, which would reorder it.)
+ *
+ * Alongside the file totals it fills a per-method table: every counted node
+ * is also charged to the innermost enclosing MethodDeclaration.
+ *
+ * For the flow section it also records who calls what by name, so the call
+ * depth can be worked out over the file's methods once the walk (or a merge
+ * of per-declaration walks) is complete.
+ */
+public class MetricsVisitor {
+
+    private static final int MAX_CALLS = 10;
+    private static final int HOTSPOTS = 10;
+
+    private int classes;
+    private int methods;
+    private int variables;
+
+    private int ifs;
+    private int switches;
+    private int ternaries;
+
+    private int loops;
+
+    private int tries;
+    private int catches;
+    private int throwsCount;
+
+    private int switchEntries;
+
+    // first MAX_CALLS distinct call names, in source order
+    private final Set<String> calls = new LinkedHashSet<>();
+
+    // Call sites by caller: node = index of the method in declaration order,
+    // callee = called name, or null for a call on another object
+    private String[] nodeNames = new String[0];
+    private int methodNodes;
+    private int[] callCaller = new int[0];
+    private String[] callCallee = new String[0];
+    private int callSites;
+
+    // Per-method columns; row = index of the method in declaration order.
+    // Start empty: IncrementalAnalyzer keeps one visitor per declaration.
+    private String[] mNames = new String[0];
+    private int[] mBegin = new int[0];
+    private int[] mEnd = new int[0];
+    private int[] mComplexity = new int[0];
+    private int[] mLoops = new int[0];
+    private int[] mConditionals = new int[0];
+    private int[] mCalls = new int[0];
+    private int rows;
+
+    // declaration nodes (by identity) collected into visitors of their own, see collect(Node, Map, ...)
+    private Map<Node, MetricsVisitor> parts;
+
+    private Deadline deadline = Deadline.NONE;
+    private int visited;
+
+    // Sections that were not asked for are skipped entirely
+    private boolean flow = true;
+    private boolean table = true;
+
+    // row of the innermost MethodDeclaration around the node being visited, -1 if none
+    private int current = -1;
+
+    // its call graph node, -1 if none
+    private int caller = -1;
+
+    public static MetricsVisitor collect(Node root) {
+        return collect(root, Deadline.NONE, Section.ALL);
+    }
+
+    public static MetricsVisitor collect(Node root, Deadline deadline, Set<Section> include) {
+        MetricsVisitor v = new MetricsVisitor(include);
+        v.deadline = deadline;
+        v.visit(root);
+        return v;
+    }
+
+    /**
+     * Same single walk, but the subtree of every key of parts is collected
+     * into a visitor of its own, stored as its value, instead of into the
+     * returned one; the returned visitor holds the rest (the skeleton).
+     * The keys must be declarations outside any method.
+     */
+    static MetricsVisitor collect(Node root, Map<Node, MetricsVisitor> parts, Deadline deadline,
+                                  Set<Section> include) {
+        MetricsVisitor v = new MetricsVisitor(include);
+        v.deadline = deadline;
+        v.parts = parts;
+        v.visit(root);
+        return v;
+    }
+
+    MetricsVisitor() {
+        this(Section.ALL);
+    }
+
+    private MetricsVisitor(Set<Section> include) {
+        this(include.contains(Section.FLOW), include.contains(Section.METHODS));
+    }
+
+    private MetricsVisitor(boolean flow, boolean table) {
+        this.flow = flow;
+        this.table = table;
+    }
+
+    private void visit(Node node) {
+
+        if (parts != null && parts.containsKey(node)) {
+            MetricsVisitor part = new MetricsVisitor(flow, table);
+            part.deadline = deadline;
+            part.visited = visited;
+            part.visit(node);
+            visited = part.visited;
+            parts.put(node, part);
+            return;
+        }
+        if ((++visited & 1023) == 0) deadline.check();
+
+        boolean method = node instanceof MethodDeclaration;
+        int enclosing = current;
+        int enclosingCaller = caller;
+
+        if (method) {
+            methods++;
+            if (table) current = addMethod((MethodDeclaration) node);
+            if (flow) caller = addMethodNode(((MethodDeclaration) node).getNameAsString());
+        } else if (node instanceof ClassOrInterfaceDeclaration) {
+            classes++;
+        } else if (node instanceof VariableDeclarator) {
+            variables++;
+        } else if (node instanceof IfStmt) {
+            ifs++;
+            conditional(1);
+        } else if (node instanceof SwitchStmt) {
+            switches++;
+            conditional(1);
+        } else if (node instanceof ConditionalExpr) {
+            // like the file total, a ternary counts as a conditional and a branch
+            ternaries++;
+            conditional(2);
+        } else if (node instanceof ForStmt
+                || node instanceof ForEachStmt
+                || node instanceof WhileStmt
+                || node instanceof DoStmt) {
+            loops++;
+            if (current >= 0) {
+                mLoops[current]++;
+                mComplexity[current]++;
+            }
+        } else if (node instanceof TryStmt) {
+            tries++;
+        } else if (node instanceof CatchClause) {
+            catches++;
+            if (current >= 0) mComplexity[current]++;
+        } else if (node instanceof ThrowStmt) {
+            throwsCount++;
+        } else if (node instanceof SwitchEntry) {
+            switchEntries++;
+            if (current >= 0) mComplexity[current]++;
+        } else if (node instanceof MethodCallExpr) {
+            if (flow) {
+                MethodCallExpr call = (MethodCallExpr) node;
+                if (calls.size() < MAX_CALLS) {
+                    calls.add(call.getNameAsString());
+                }
+                if (caller >= 0) addCallSite(caller, ownCall(call) ? call.getNameAsString() : null);
+            }
+            if (current >= 0) mCalls[current]++;
+        }
+
+        for (Node child : node.getChildNodes()) {
+            visit(child);
+        }
+
+        if (method) {
+            current = enclosing;
+            caller = enclosingCaller;
+        }
+    }
+
+    // foo() and this.foo() may call a method of this file; x.foo() leaves the file
+    private static boolean ownCall(MethodCallExpr call) {
+        Expression scope = call.getScope().orElse(null);
+        return scope == null || scope.isThisExpr();
+    }
+
+    private int addMethodNode(String name) {
+        int node = methodNodes++;
+        if (node == nodeNames.length) nodeNames = Arrays.copyOf(nodeNames, Math.max(4, node * 2));
+        nodeNames[node] = name;
+        return node;
+    }
+
+    private void addCallSite(int from, String callee) {
+        int site = callSites++;
+        if (site == callCaller.length) {
+            int n = Math.max(8, site * 2);
+            callCaller = Arrays.copyOf(callCaller, n);
+            callCallee = Arrays.copyOf(callCallee, n);
+        }
+        callCaller[site] = from;
+        callCallee[site] = callee;
+    }
+
+    private void conditional(int complexity) {
+        if (current < 0) return;
+        mConditionals[current]++;
+        mComplexity[current] += complexity;
+    }
+
+    private int addMethod(MethodDeclaration md) {
+        int row = newRow();
+
+        mNames[row] = md.getNameAsString();
+        Range range = md.getRange().orElse(null);
+        if (range != null) {
+            mBegin[row] = range.begin.line;
+            mEnd[row] = range.end.line;
+        }
+        mComplexity[row] = 1;
+        return row;
+    }
+
+    private int newRow() {
+        int row = rows++;
+
+        if (row == mNames.length) {
+            int n = Math.max(4, row * 2);
+            mNames = Arrays.copyOf(mNames, n);
+            mBegin = Arrays.copyOf(mBegin, n);
+            mEnd = Arrays.copyOf(mEnd, n);
+            mComplexity = Arrays.copyOf(mComplexity, n);
+            mLoops = Arrays.copyOf(mLoops, n);
+            mConditionals = Arrays.copyOf(mConditionals, n);
+            mCalls = Arrays.copyOf(mCalls, n);
+        }
+        return row;
+    }
+
+    /**
+     * Adds the counters and method rows of a declaration collected on its
+     * own, as if its nodes had been visited here. Method line numbers are
+     * moved by lineShift. Declarations must be added in source order for
+     * the call list to match a whole-file walk.
+     */
+    void add(MetricsVisitor other, int lineShift) {
+        classes += other.classes;
+        variables += other.variables;
+        ifs += other.ifs;
+        switches += other.switches;
+        ternaries += other.ternaries;
+        loops += other.loops;
+        tries += other.tries;
+        catches += other.catches;
+        throwsCount += other.throwsCount;
+        switchEntries += other.switchEntries;
+
+        for (String call : other.calls) {
+            if (calls.size() >= MAX_CALLS) break;
+            calls.add(call);
+        }
+
+        int nodeShift = methodNodes;
+        for (int i = 0; i < other.methodNodes; i++) {
+            addMethodNode(other.nodeNames[i]);
+        }
+        for (int i = 0; i < other.callSites; i++) {
+            addCallSite(other.callCaller[i] + nodeShift, other.callCallee[i]);
+        }
+
+        methods += other.methods;
+        for (int i = 0; i < other.rows; i++) {
+            int row = newRow();
+            mNames[row] = other.mNames[i];
+            mBegin[row] = other.mBegin[i] + lineShift;
+            mEnd[row] = other.mEnd[i] + lineShift;
+            mComplexity[row] = other.mComplexity[i];
+            mLoops[row] = other.mLoops[i];
+            mConditionals[row] = other.mConditionals[i];
+            mCalls[row] = other.mCalls[i];
+        }
+    }
+
+    public int getClasses() { return classes; }
+    public int getMethods() { return methods; }
+    public int getVariables() { return variables; }
+    public int getLoops() { return loops; }
+
+    public int getConditionals() {
+        return ifs + switches + ternaries;
+    }
+
+    public int getExceptionBlocks() {
+        return tries + catches + throwsCount;
+    }
+
+    public int getCyclomaticComplexity() {
+        return 1
+                + getConditionals()
+                + loops
+                + catches
+                + ternaries
+                + switchEntries;
+    }
+
+    public List<String> getCalls() {
+        return new ArrayList<>(calls);
+    }
+
+    /**
+     * Levels of the longest call chain through this file's methods, one for
+     * a file without calls. Calls are matched to methods by name (every
+     * overload); a call that leaves the file adds one last level, and a
+     * recursion cycle counts as one level.
+     */
+    public int getMaxDepth() {
+        CallGraph.Builder graph = new CallGraph.Builder();
+        for (int i = 0; i < methodNodes; i++) graph.addNode();
+        int outside = graph.addNode();
+
+        // first method of each name; nextSame chains its overloads
+        Map<String, Integer> byName = new HashMap<>();
+        int[] nextSame = new int[methodNodes];
+        for (int m = methodNodes - 1; m >= 0; m--) {
+            Integer next = byName.put(nodeNames[m], m);
+            nextSame[m] = next == null ? -1 : next;
+        }
+
+        for (int i = 0; i < callSites; i++) {
+            Integer to = callCallee[i] == null ? null : byName.get(callCallee[i]);
+            if (to == null) {
+                graph.addEdge(callCaller[i], outside);
+                continue;
+            }
+            for (int m = to; m >= 0; m = nextSame[m]) {
+                graph.addEdge(callCaller[i], m);
+            }
+        }
+        return Math.max(1, graph.build().longestChain().length);
+    }
+
+    public MethodTable getMethodTable() {
+        int n = rows;
+        return new MethodTable(
+                Arrays.copyOf(mNames, n),
+                Arrays.copyOf(mBegin, n),
+                Arrays.copyOf(mEnd, n),
+                Arrays.copyOf(mComplexity, n),
+                Arrays.copyOf(mLoops, n),
+                Arrays.copyOf(mConditionals, n),
+                Arrays.copyOf(mCalls, n),
+                topRows(mComplexity, n, HOTSPOTS));
+    }
+
+    // Rows with the highest values, highest first (earlier row wins ties)
+    static int[] topRows(int[] values, int n, int limit) {
+        int[] top = new int[Math.min(limit, n)];
+        int size = 0;
+
+        for (int row = 0; row < n; row++) {
+            int pos = size;
+            while (pos > 0 && values[top[pos - 1]] < values[row]) pos--;
+            if (pos >= top.length) continue;
+
+            int last = Math.min(size, top.length - 1);
+            System.arraycopy(top, pos, top, pos + 1, last - pos);
+            top[pos] = row;
+            if (size < top.length) size++;
+        }
+        return top;
+    }
+}
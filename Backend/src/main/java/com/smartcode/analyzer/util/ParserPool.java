@@ -0,0 +1,141 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size pool of pre-built JavaParser instances.
+ *
+ * A JavaParser (3.27) builds its generated parser on the first parse and
+ * resets it with the next source on every later one, so it carries the
+ * state of the parse in progress and must never be used by two threads at
+ * once. The pool bounds how many parses run concurrently, and each parser
+ * keeps its configuration (language level, validators) and generated
+ * parser for its lifetime instead of building them per request. Each
+ * request checks a parser out, parses, and hands it back; when every parser
+ * is busy the caller waits up to the configured timeout.
+ *
+ * A pool built with autoDetect(fallback) shares this pool's parsers, but a
+ * source they reject is parsed once more with the fallback pool (see
+ * CodeParserUtil.parse).
+ */
+public class ParserPool {
+
+    private final BlockingQueue<JavaParser> idle;
+    private final int size;
+    private final long acquireTimeoutMs;
+    private final String configKey;
+
+    // tried when a source doesn't parse cleanly here; null = none
+    private final ParserPool fallback;
+
+    // Checkout metrics
+    private final LongAdder checkouts;
+    private final LongAdder timeouts;
+    private final LongAdder totalWaitNanos;
+    private final AtomicLong maxWaitNanos;
+
+    public ParserPool(ParserConfiguration config, int size, long acquireTimeoutMs) {
+        if (size <= 0) size = Runtime.getRuntime().availableProcessors();
+
+        this.size = size;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.configKey = configKey(config);
+        this.fallback = null;
+
+        this.checkouts = new LongAdder();
+        this.timeouts = new LongAdder();
+        this.totalWaitNanos = new LongAdder();
+        this.maxWaitNanos = new AtomicLong();
+
+        for (int i = 0; i < size; i++) {
+            idle.add(new JavaParser(config));
+        }
+    }
+
+    // Same parsers and counters, with a fallback
+    private ParserPool(ParserPool base, ParserPool fallback) {
+        this.size = base.size;
+        this.acquireTimeoutMs = base.acquireTimeoutMs;
+        this.idle = base.idle;
+        this.configKey = base.configKey + ">" + fallback.configKey;
+        this.fallback = fallback;
+
+        this.checkouts = base.checkouts;
+        this.timeouts = base.timeouts;
+        this.totalWaitNanos = base.totalWaitNanos;
+        this.maxWaitNanos = base.maxWaitNanos;
+    }
+
+    // This pool, retrying sources it can't parse cleanly with the fallback's parsers
+    public ParserPool autoDetect(ParserPool fallback) {
+        return new ParserPool(this, fallback);
+    }
+
+    // Identifies the parser settings; results are only reusable under the same key
+    public static String configKey(ParserConfiguration config) {
+        return config.getLanguageLevel()
+                + (config.isAttributeComments() ? "+comments" : "")
+                + (config.isPreprocessUnicodeEscapes() ? "+unicode" : "");
+    }
+
+    public JavaParser acquire() throws InterruptedException {
+        return acquire(Deadline.NONE);
+    }
+
+    // Waits no longer than the request deadline allows
+    public JavaParser acquire(Deadline deadline) throws InterruptedException {
+        long timeoutMs = Math.min(acquireTimeoutMs, deadline.remainingMillis());
+
+        long start = System.nanoTime();
+        JavaParser parser = idle.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        long waited = System.nanoTime() - start;
+
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        if (parser == null) {
+            timeouts.increment();
+            // the request ran out of time before the pool's own timeout did
+            if (timeoutMs < acquireTimeoutMs) throw deadline.exceeded();
+            throw new IllegalStateException(
+                    "No parser available after " + waited / 1_000_000 + " ms, analyzer is overloaded");
+        }
+
+        checkouts.increment();
+        return parser;
+    }
+
+    public void release(JavaParser parser) {
+        if (parser != null) idle.offer(parser);
+    }
+
+    public int getSize() { return size; }
+
+    public ParserPool getFallback() { return fallback; }
+
+    // Identifies the parser settings; results are only reusable under the same key
+    public String getConfigKey() { return configKey; }
+
+    public Map<String, Object> stats() {
+        long count = checkouts.sum();
+        long attempts = count + timeouts.sum();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("size", size);
+        s.put("idle", idle.size());
+        s.put("checkouts", count);
+        s.put("timeouts", attempts - count);
+        s.put("avgWaitMs", attempts == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / attempts);
+        s.put("maxWaitMs", maxWaitNanos.get() / 1e6);
+        return s;
+    }
+}
@@ -0,0 +1,105 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One ParserPool per Java language level, so requests can pick their level
+ * without building parsers on the hot path.
+ *
+ * Configurations differ only in the language level (everything else comes
+ * from CodeParserUtil.defaultConfiguration()) and are keyed like cached
+ * results, by ParserPool.configKey(). Every level's pool is built at startup
+ * (a JavaParser only holds its configuration until it parses, so this is
+ * cheap); lookups never build anything and never lock. Warm-up runs the
+ * default level, the newest level and any preloaded ones.
+ *
+ * Auto-detection parses at the default level and retries at the newest
+ * level JavaParser knows when the source doesn't parse cleanly, so sources
+ * using newer syntax need no level from the caller.
+ */
+public class ParserPools {
+
+    private final Map<LanguageLevel, ParserPool> pools = new EnumMap<>(LanguageLevel.class);
+    private final List<ParserPool> warmUp = new ArrayList<>();
+    private final ParserPool defaultPool;
+    private final ParserPool auto;
+
+    // size 0 = one parser per available core, in every pool; preload: more levels to warm up
+    public ParserPools(LanguageLevel defaultLevel, Collection<LanguageLevel> preload,
+                       int size, long acquireTimeoutMs) {
+        for (LanguageLevel level : LanguageLevel.values()) {
+            pools.put(level, new ParserPool(
+                    CodeParserUtil.defaultConfiguration().setLanguageLevel(level), size, acquireTimeoutMs));
+        }
+
+        this.defaultPool = get(defaultLevel);
+        ParserPool newest = get(LanguageLevel.BLEEDING_EDGE);
+        this.auto = newest == defaultPool ? defaultPool : defaultPool.autoDetect(newest);
+
+        warmUp.add(defaultPool);
+        if (!warmUp.contains(newest)) warmUp.add(newest);
+        for (LanguageLevel level : preload) {
+            if (!warmUp.contains(get(level))) warmUp.add(get(level));
+        }
+    }
+
+    // "17", "1.8", "java_21", "JAVA_17_PREVIEW"; blank or "auto" -> null (auto-detect)
+    public static LanguageLevel parseLevel(String value) {
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("auto")) return null;
+
+        String name = value.trim().toUpperCase().replace('.', '_');
+        if (!name.startsWith("JAVA_")) name = "JAVA_" + name;
+        LanguageLevel level = byName(name);
+
+        // 1.5 .. 1.8 are JAVA_5 .. JAVA_8; only 1.0 .. 1.4 keep the "1_"
+        if (level == null && name.startsWith("JAVA_1_")) level = byName("JAVA_" + name.substring(7));
+
+        if (level == null) throw new IllegalArgumentException("Unsupported language level: " + value.trim());
+        return level;
+    }
+
+    private static LanguageLevel byName(String name) {
+        for (LanguageLevel level : LanguageLevel.values()) {
+            if (level.name().equals(name)) return level;
+        }
+        return null;
+    }
+
+    // null = auto-detect
+    public ParserPool forLevel(LanguageLevel level) {
+        return level == null ? auto : get(level);
+    }
+
+    public ParserPool get(LanguageLevel level) {
+        return pools.get(level);
+    }
+
+    public ParserPool getDefault() { return defaultPool; }
+
+    // The pools warm-up runs: the default one first, then the newest and the preloaded levels
+    public List<ParserPool> warmUp() {
+        return Collections.unmodifiableList(warmUp);
+    }
+
+    // Parsers at the default level, falling back to the newest
+    public ParserPool getAuto() { return auto; }
+
+    // Warmed-up pools and any other level that has been used
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("default", defaultPool.getConfigKey());
+        for (ParserPool pool : pools.values()) {
+            Map<String, Object> stats = pool.stats();
+            if (warmUp.contains(pool) || (long) stats.get("checkouts") > 0) s.put(pool.getConfigKey(), stats);
+        }
+        return s;
+    }
+}
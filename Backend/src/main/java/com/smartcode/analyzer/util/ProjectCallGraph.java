@@ -0,0 +1,353 @@
+package com.smartcode.analyzer.util;
+
+import com.smartcode.analyzer.model.CallGraphSummary;
+import com.smartcode.analyzer.model.CallGraphSummary.MethodCount;
+
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.resolution.TypeSolver;
+import com.github.javaparser.resolution.declarations.ResolvedDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.cache.InMemoryCache;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Call graph of all sources of one ZIP upload, resolved with the JavaParser
+ * symbol solver.
+ *
+ * ZIP workers add the AST of each entry they parse for its metrics (an
+ * entry served from the cache is parsed once, for the graph only); build()
+ * then resolves every method call and constructor invocation against one
+ * memoizing CombinedTypeSolver over the JDK and the uploaded types, so a
+ * type is resolved once per upload however many files refer to it; JDK
+ * types come from the process-wide JdkTypeSolver and are resolved once per
+ * process rather than once per upload. Every method and constructor of the
+ * upload becomes a node of a CallGraph; calls into the JDK count as
+ * external, calls the solver can't resolve (e.g. into libraries that
+ * weren't uploaded) as unresolved.
+ */
+public class ProjectCallGraph {
+
+    private static final int TOP_METHODS = 10;
+    private static final int MAX_CYCLES = 20;
+    private static final int MAX_CYCLE_LENGTH = 20;
+
+    // guards activeBuilds: builds between their first JavaParserFacade.get() and release()
+    private static final Object REGISTRY = new Object();
+    private static int activeBuilds;
+
+    private final ParserPool pool;
+    private final JdkTypeSolver jdk;
+    private final int maxFiles;
+    private final long maxBytes;
+    private final long maxMillis;
+
+    // by path, so node ids don't depend on which worker finished first
+    private final Map<String, CompilationUnit> units = new TreeMap<>();
+    private int files;                // kept (or being parsed) units
+    private long bytes;               // and their source bytes
+    private int skippedFiles;
+
+    // maxFiles / maxBytes / maxMillis: 0 or less = no limit
+    public ProjectCallGraph(ParserPool pool, JdkTypeSolver jdk, int maxFiles, long maxBytes, long maxMillis) {
+        this.pool = pool;
+        this.jdk = jdk;
+        this.maxFiles = maxFiles;
+        this.maxBytes = maxBytes;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Keeps the AST of one source its ZIP worker has already parsed for the
+     * metrics; called by the workers concurrently. The ASTs kept are bounded
+     * by maxFiles and by maxBytes of source; one that doesn't fit only
+     * counts as skipped.
+     */
+    public void add(SourceInput source, CompilationUnit cu) {
+        synchronized (units) {
+            if (!reserve(source.size())) return;
+            units.put(source.getPath(), cu);
+        }
+    }
+
+    /**
+     * Parses and keeps one source whose metrics came from the cache, under
+     * what is left of the caller's deadline; a file that doesn't fit,
+     * doesn't parse or runs out of time only counts as skipped.
+     */
+    public void add(SourceInput source, Deadline deadline) {
+        synchronized (units) {
+            if (!reserve(source.size())) return;
+        }
+
+        CompilationUnit cu;
+        try {
+            cu = CodeParserUtil.parse(ParseStart.COMPILATION_UNIT, source.bytes(), pool, deadline)
+                    .getResult().orElse(null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cu = null;
+        } catch (RuntimeException | StackOverflowError e) {
+            cu = null;
+        }
+
+        synchronized (units) {
+            if (cu == null) {
+                bytes -= source.size();
+                files--;
+                skippedFiles++;
+            } else {
+                units.put(source.getPath(), cu);
+            }
+        }
+    }
+
+    // Counts a file the caller decided not to add (e.g. over the analysis budget)
+    public void skip() {
+        synchronized (units) {
+            skippedFiles++;
+        }
+    }
+
+    // Claims room for a source, before parsing it if it still needs a parse, so
+    // concurrent workers can't overshoot; the caller holds the units lock
+    private boolean reserve(long size) {
+        boolean full = (maxFiles > 0 && files >= maxFiles)
+                || (maxBytes > 0 && bytes + size > maxBytes);
+        if (full) {
+            skippedFiles++;
+            return false;
+        }
+        files++;
+        bytes += size;
+        return true;
+    }
+
+    public CallGraphSummary build() {
+        long start = System.nanoTime();
+        // nanoTime may be negative, so no limit means no check rather than a far-off stopAt
+        boolean timed = maxMillis > 0;
+        long stopAt = start + maxMillis * 1_000_000;
+
+        List<CompilationUnit> cus;
+        synchronized (units) {
+            cus = new ArrayList<>(units.values());
+        }
+
+        // uploaded types first; the combined solver memoizes every lookup
+        ProjectTypes projectTypes = new ProjectTypes();
+        InMemoryCache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> lookups = InMemoryCache.create();
+        TypeSolver solver = new CombinedTypeSolver(CombinedTypeSolver.ExceptionHandlers.IGNORE_ALL,
+                List.of(projectTypes, jdk), lookups);
+
+        CallGraphSummary summary = new CallGraphSummary();
+        synchronized (REGISTRY) {
+            activeBuilds++;
+        }
+        try {
+            // this build's own facade, found again by the solver's internals through its type solver
+            JavaParserFacade facade = JavaParserFacade.get(solver);
+            JavaSymbolSolver symbolSolver = new JavaSymbolSolver(solver);
+
+            CallGraph.Builder graph = new CallGraph.Builder();
+            Map<Node, Integer> ids = new IdentityHashMap<>();
+            List<String> names = new ArrayList<>();
+            Set<String> declared = new HashSet<>();
+
+            for (CompilationUnit cu : cus) {
+                symbolSolver.inject(cu);
+
+                for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+                    // the first of several types with one name wins
+                    type.getFullyQualifiedName().filter(declared::add)
+                            .ifPresent(name -> projectTypes.types.put(name, facade.getTypeDeclaration(type)));
+                }
+                for (CallableDeclaration<?> callable : cu.findAll(CallableDeclaration.class)) {
+                    ids.put(callable, graph.addNode());
+                    names.add(name(callable));
+                }
+            }
+
+            int external = 0;
+            int unresolved = 0;
+
+            resolve:
+            for (CompilationUnit cu : cus) {
+                for (Node call : cu.findAll(Node.class, ProjectCallGraph::isCall)) {
+                    if (timed && System.nanoTime() - stopAt > 0) {
+                        summary.setTruncated(true);
+                        break resolve;
+                    }
+
+                    // calls in field initializers and initializer blocks belong to no method
+                    Optional<Node> caller = call.findAncestor(CallableDeclaration.class).map(c -> (Node) c);
+                    if (caller.isEmpty()) continue;
+
+                    ResolvedDeclaration callee = resolve(facade, call);
+                    if (callee == null) {
+                        unresolved++;
+                        continue;
+                    }
+
+                    Integer to = callee.toAst().map(ids::get).orElse(null);
+                    if (to == null) {
+                        external++;
+                    } else {
+                        graph.addEdge(ids.get(caller.get()), to);
+                    }
+                }
+            }
+
+            fill(summary, graph.build(), names);
+            summary.setExternalCalls(external);
+            summary.setUnresolvedCalls(unresolved);
+
+        } finally {
+            // whatever the registry still holds of this build no longer reaches its ASTs
+            projectTypes.types.clear();
+            lookups.removeAll();
+            release();
+        }
+
+        synchronized (units) {
+            summary.setSkippedFiles(skippedFiles);
+        }
+        summary.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        return summary;
+    }
+
+    /**
+     * JavaParserFacade keeps one facade per root type solver in a static
+     * registry that never drops an entry on its own (the facade refers to
+     * its key), and the solver's internals look facades up there, so a build
+     * can't keep its facade out of it. The registry is emptied when the last
+     * build in flight ends, never under a build that still uses its facade.
+     */
+    private static void release() {
+        synchronized (REGISTRY) {
+            if (--activeBuilds > 0) return;
+            // get() locks the class, clearInstances() doesn't
+            synchronized (JavaParserFacade.class) {
+                JavaParserFacade.clearInstances();
+            }
+        }
+    }
+
+    // Uploaded types of one build; emptied when the build ends
+    private static class ProjectTypes implements TypeSolver {
+        final Map<String, ResolvedReferenceTypeDeclaration> types = new HashMap<>();
+        private TypeSolver parent;
+
+        @Override
+        public TypeSolver getParent() {
+            return parent;
+        }
+
+        @Override
+        public void setParent(TypeSolver parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            ResolvedReferenceTypeDeclaration type = types.get(name);
+            return type != null ? SymbolReference.solved(type) : SymbolReference.unsolved();
+        }
+    }
+
+    private static boolean isCall(Node n) {
+        return n instanceof MethodCallExpr
+                || n instanceof ObjectCreationExpr
+                || n instanceof ExplicitConstructorInvocationStmt;
+    }
+
+    // The called declaration, or null when the solver gives up
+    private static ResolvedDeclaration resolve(JavaParserFacade facade, Node call) {
+        try {
+            SymbolReference<? extends ResolvedDeclaration> ref;
+            if (call instanceof MethodCallExpr m) {
+                ref = facade.solve(m);
+            } else if (call instanceof ObjectCreationExpr o) {
+                ref = facade.solve(o);
+            } else {
+                ref = facade.solve((ExplicitConstructorInvocationStmt) call);
+            }
+            return ref.isSolved() ? ref.getCorrespondingDeclaration() : null;
+
+        } catch (RuntimeException | StackOverflowError e) {
+            // unsolved symbols, unsupported constructs, and the solver's own deep recursion
+            return null;
+        }
+    }
+
+    // pkg.Type.name(ParamTypes); anonymous and local classes go by their enclosing type
+    private static String name(CallableDeclaration<?> callable) {
+        String type = callable.findAncestor(TypeDeclaration.class)
+                .map(t -> ((TypeDeclaration<?>) t).getFullyQualifiedName()
+                        .orElse(((TypeDeclaration<?>) t).getNameAsString()))
+                .orElse("");
+        return type + "." + callable.getSignature().asString();
+    }
+
+    private static void fill(CallGraphSummary summary, CallGraph graph, List<String> names) {
+        summary.setMethods(graph.nodeCount());
+        summary.setCalls(graph.edgeCount());
+
+        int[] chain = graph.longestChain();
+        summary.setMaxCallDepth(chain.length);
+        for (int node : chain) {
+            summary.getDeepestChain().add(names.get(node));
+        }
+
+        List<int[]> cycles = graph.cycles();
+        summary.setRecursiveCycles(cycles.size());
+        for (int[] cycle : cycles.subList(0, Math.min(MAX_CYCLES, cycles.size()))) {
+            List<String> members = new ArrayList<>();
+            for (int i = 0; i < cycle.length && i < MAX_CYCLE_LENGTH; i++) {
+                members.add(names.get(cycle[i]));
+            }
+            summary.getCycles().add(members);
+        }
+
+        int[] fanIn = graph.fanIn();
+        int[] fanOut = new int[graph.nodeCount()];
+        for (int i = 0; i < fanOut.length; i++) fanOut[i] = graph.fanOut(i);
+
+        summary.setTopFanIn(top(fanIn, names));
+        summary.setTopFanOut(top(fanOut, names));
+    }
+
+    // Highest counts first, ties in node order; zero counts are left out
+    private static List<MethodCount> top(int[] counts, List<String> names) {
+        Integer[] order = new Integer[counts.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> -counts[i]).thenComparingInt(i -> i));
+
+        List<MethodCount> top = new ArrayList<>();
+        for (int i = 0; i < order.length && top.size() < TOP_METHODS && counts[order[i]] > 0; i++) {
+            top.add(new MethodCount(names.get(order[i]), counts[order[i]]));
+        }
+        return top;
+    }
+}
@@ -0,0 +1,139 @@
+package com.smartcode.analyzer.util;
+
+/**
+ * Mergeable quantile sketch for non-negative values (DDSketch-style).
+ *
+ * Values fall into logarithmic buckets of ratio gamma = (1+a)/(1-a), so any
+ * quantile comes back within relative error a = 1% of a value that was
+ * added. Memory is bounded by MAX_BUCKETS whatever the number of values;
+ * past that the lowest buckets are folded together, which only affects
+ * the accuracy of the smallest quantiles. Two sketches merge by adding
+ * their bucket counts, so shards can be summarized separately.
+ *
+ * Getters / setters expose the raw state so a sketch survives a JSON round trip;
+ * a sketch that comes from outside must pass validate() before it is merged.
+ */
+public class QuantileSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // values below this count as zero
+    private static final double MIN_VALUE = 1e-9;
+    private static final int MAX_BUCKETS = 2048;
+
+    // bucket indexes of the smallest and largest value a sketch can hold
+    private static final int MIN_INDEX = index(MIN_VALUE);
+    private static final int MAX_INDEX = index(Double.MAX_VALUE);
+
+    private long zeroCount;
+    private int offset;                       // bucket index of counts[0]
+    private long[] counts = new long[0];
+
+    public void add(double value) {
+        if (value < MIN_VALUE) {
+            zeroCount++;
+            return;
+        }
+        int index = Math.min(index(value), MAX_INDEX);
+        grow(index, index);
+        counts[Math.max(index, offset) - offset]++;
+    }
+
+    public void merge(QuantileSketch other) {
+        zeroCount += other.zeroCount;
+        if (other.counts.length == 0) return;
+
+        grow(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[Math.max(other.offset + i, offset) - offset] += other.counts[i];
+        }
+    }
+
+    /**
+     * Rejects state add() and merge() can't produce, such as negative counts
+     * or bucket indexes outside the range of doubles, which would make
+     * merge() allocate a huge array or overflow.
+     */
+    public void validate() {
+        if (zeroCount < 0) throw new IllegalArgumentException("negative zero count");
+        if (counts.length > MAX_BUCKETS) {
+            throw new IllegalArgumentException("more than " + MAX_BUCKETS + " buckets");
+        }
+        if (counts.length > 0 && (offset < MIN_INDEX || (long) offset + counts.length - 1 > MAX_INDEX)) {
+            throw new IllegalArgumentException("bucket indexes outside " + MIN_INDEX + ".." + MAX_INDEX);
+        }
+
+        long n = zeroCount;
+        for (long c : counts) {
+            if (c < 0) throw new IllegalArgumentException("negative bucket count");
+            n += c;
+            if (n < 0) throw new IllegalArgumentException("total count overflows");
+        }
+    }
+
+    public long count() {
+        long n = zeroCount;
+        for (long c : counts) n += c;
+        return n;
+    }
+
+    // Value at quantile q (0..1); 0 for an empty sketch
+    public double quantile(double q) {
+        long n = count();
+        if (n == 0) return 0;
+
+        long rank = (long) (Math.max(0, Math.min(1, q)) * (n - 1));
+        long seen = zeroCount;
+        if (rank < seen) return 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                // middle of the bucket (gamma^(k-1), gamma^k]
+                return 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, offset + counts.length - 1) / (GAMMA + 1);
+    }
+
+    private static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    // Makes room for bucket indexes lo..hi, folding the lowest buckets if over MAX_BUCKETS
+    private void grow(int lo, int hi) {
+        if (counts.length == 0) {
+            offset = Math.max(lo, hi - MAX_BUCKETS + 1);
+            counts = new long[hi - offset + 1];
+            return;
+        }
+
+        int curHi = offset + counts.length - 1;
+        int newLo = Math.min(lo, offset);
+        int newHi = Math.max(hi, curHi);
+        if (newLo == offset && newHi == curHi) return;
+
+        // keep the top MAX_BUCKETS; anything below lands in the lowest kept bucket
+        newLo = Math.max(newLo, newHi - MAX_BUCKETS + 1);
+
+        long[] grown = new long[newHi - newLo + 1];
+        for (int i = 0; i < counts.length; i++) {
+            grown[Math.max(offset + i, newLo) - newLo] += counts[i];
+        }
+        counts = grown;
+        offset = newLo;
+    }
+
+    public long getZeroCount() { return zeroCount; }
+    public void setZeroCount(long zeroCount) { this.zeroCount = zeroCount; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public long[] getCounts() { return counts; }
+    public void setCounts(long[] counts) {
+        this.counts = counts == null ? new long[0] : counts;
+    }
+}
@@ -0,0 +1,253 @@
+package com.smartcode.analyzer.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Managed scratch area for files a request has to put on disk (spooled
+ * uploads, queued job archives).
+ *
+ * Layout: {dir}/smartcode-scratch/i-{random}/{lease no}/... Every user takes
+ * a Lease, which reserves bytes against a per-lease and a global quota and
+ * owns one directory. A lease is reference counted: whoever hands it on
+ * (e.g. to a background job) retains it, and the directory is deleted when
+ * the last holder releases it.
+ *
+ * Each instance holds an exclusive FileLock on the LOCK_FILE of its own
+ * directory for as long as it runs. At startup, instance directories whose
+ * lock can be taken belong to processes that are gone and are swept; pids
+ * are not used, since containers sharing a volume all run as pid 1. Nothing
+ * else under {dir} is touched, so it may be a shared mount like /dev/shm.
+ * Extraction directories older than an hour that earlier versions left in
+ * java.io.tmpdir (Files.createTempDirectory("smartcode_zip"), so the prefix
+ * and digits only) are swept as well; nothing else in java.io.tmpdir is.
+ */
+public class ScratchSpace implements AutoCloseable {
+
+    private static final Pattern LEGACY_DIR = Pattern.compile("smartcode_zip\\d+");
+    private static final long LEGACY_MIN_AGE_MS = 3_600_000;
+
+    static final String SUBDIR = "smartcode-scratch";
+    static final String INSTANCE_PREFIX = "i-";
+    static final String LOCK_FILE = ".lock";
+
+    private final Path root;
+    private final Path instanceDir;
+
+    // held until close(); marks instanceDir as in use
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final long maxBytes;
+    private final long maxLeaseBytes;
+
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicInteger leaseNo = new AtomicInteger();
+    private final AtomicInteger activeLeases = new AtomicInteger();
+
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+
+    // Reserving past a quota; callers fall back to not using the disk, or ask to retry later
+    public static class QuotaExceededException extends IllegalStateException {
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+
+    // dir: where the smartcode-scratch directory goes
+    public ScratchSpace(Path dir, long maxBytes, long maxLeaseBytes) {
+        this.root = dir.toAbsolutePath().normalize().resolve(SUBDIR);
+        this.instanceDir = root.resolve(INSTANCE_PREFIX + UUID.randomUUID());
+        this.maxBytes = maxBytes;
+        this.maxLeaseBytes = maxLeaseBytes;
+
+        try {
+            Files.createDirectories(instanceDir);
+            lockChannel = FileChannel.open(instanceDir.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            lock = lockChannel.lock();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create scratch dir " + instanceDir, e);
+        }
+        sweep();
+    }
+
+    /**
+     * Opens a lease with bytes reserved up front (e.g. the upload size).
+     * Throws QuotaExceededException when that doesn't fit.
+     */
+    public Lease lease(long bytes) throws IOException {
+        Lease lease = new Lease(instanceDir.resolve(Integer.toString(leaseNo.incrementAndGet())));
+        try {
+            lease.reserve(bytes);
+            Files.createDirectories(lease.dir);
+        } catch (IOException | RuntimeException e) {
+            lease.release();
+            throw e;
+        }
+        leases.increment();
+        return lease;
+    }
+
+    /**
+     * One user's share of the scratch area. The creator holds the first
+     * reference; retain() adds one for every further holder and each holder
+     * calls release() (or close()) exactly once.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final Path dir;
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private final AtomicLong bytes = new AtomicLong();
+
+        private Lease(Path dir) {
+            this.dir = dir;
+            activeLeases.incrementAndGet();
+        }
+
+        // Reserves more bytes for this lease
+        public void reserve(long more) {
+            if (more <= 0) return;
+
+            long mine = bytes.addAndGet(more);
+            if (maxLeaseBytes > 0 && mine > maxLeaseBytes) {
+                bytes.addAndGet(-more);
+                rejections.increment();
+                throw new QuotaExceededException("Request needs more than " + maxLeaseBytes + " bytes of scratch space");
+            }
+
+            long total = reserved.addAndGet(more);
+            if (maxBytes > 0 && total > maxBytes) {
+                reserved.addAndGet(-more);
+                bytes.addAndGet(-more);
+                rejections.increment();
+                throw new QuotaExceededException("Scratch space is full (" + maxBytes + " bytes)");
+            }
+        }
+
+        // A new empty file inside the lease directory
+        public Path newFile(String suffix) throws IOException {
+            return Files.createTempFile(dir, "f", suffix);
+        }
+
+        public Lease retain() {
+            if (refs.getAndIncrement() <= 0) {
+                refs.decrementAndGet();
+                throw new IllegalStateException("Scratch lease already released");
+            }
+            return this;
+        }
+
+        public void release() {
+            if (refs.decrementAndGet() != 0) return;
+
+            ZipUtil.deleteFolder(dir.toFile());
+            reserved.addAndGet(-bytes.getAndSet(0));
+            activeLeases.decrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    // Removes what dead processes and earlier versions left behind
+    private void sweep() {
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.toList()) {
+                if (!dir.equals(instanceDir) && isAbandoned(dir)) {
+                    ZipUtil.deleteFolder(dir.toFile());
+                    swept.increment();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // nothing to sweep yet
+        }
+
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        long cutoff = System.currentTimeMillis() - LEGACY_MIN_AGE_MS;
+
+        try (Stream<Path> files = Files.list(tmp)) {
+            for (Path f : files.filter(ScratchSpace::isLegacyDir).toList()) {
+                if (Files.getLastModifiedTime(f).toMillis() < cutoff) {
+                    ZipUtil.deleteFolder(f.toFile());
+                    swept.increment();
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // best effort
+        }
+    }
+
+    // A directory named the way the old ZipUtil named its extraction directories
+    static boolean isLegacyDir(Path f) {
+        return LEGACY_DIR.matcher(f.getFileName().toString()).matches()
+                && Files.isDirectory(f, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * An instance directory this class created whose owner is gone: it has
+     * our lock file and nobody holds the lock. Anything else, including a
+     * directory without the lock file, is left alone.
+     */
+    static boolean isAbandoned(Path dir) {
+        if (!dir.getFileName().toString().startsWith(INSTANCE_PREFIX)) return false;
+
+        Path lockFile = dir.resolve(LOCK_FILE);
+        if (!Files.isRegularFile(lockFile)) return false;
+
+        try (FileChannel ch = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            FileLock probe = ch.tryLock();
+            if (probe == null) return false;        // held by another process
+            probe.release();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false;                           // held by another instance in this JVM
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // On shutdown nothing of this process survives, leased or not
+    @Override
+    public void close() {
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            // the directory goes anyway
+        }
+        ZipUtil.deleteFolder(instanceDir.toFile());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("dir", instanceDir.toString());
+        s.put("reservedBytes", reserved.get());
+        s.put("maxBytes", maxBytes);
+        s.put("maxLeaseBytes", maxLeaseBytes);
+        s.put("activeLeases", activeLeases.get());
+        s.put("leases", leases.sum());
+        s.put("rejections", rejections.sum());
+        s.put("swept", swept.sum());
+        return s;
+    }
+}
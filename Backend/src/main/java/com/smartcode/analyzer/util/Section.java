@@ -0,0 +1,60 @@
+package com.smartcode.analyzer.util;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Parts of an analysis result a caller can ask for with include=.
+ * Unrequested sections are neither collected during the AST walk nor
+ * serialized; the summary counters are always collected since everything
+ * else is derived alongside them.
+ *
+ * CALLGRAPH is not a per-file section: it asks a ZIP analysis for the
+ * project-wide call graph and is never part of the default.
+ */
+public enum Section {
+    SUMMARY, FLOW, METHODS, CALLGRAPH;
+
+    // every per-file section
+    public static final Set<Section> ALL = EnumSet.of(SUMMARY, FLOW, METHODS);
+
+    // "summary,flow" -> {SUMMARY, FLOW}; empty means everything
+    public static Set<Section> parse(String value) {
+        if (value == null || value.isBlank()) return ALL;
+
+        Set<Section> sections = EnumSet.noneOf(Section.class);
+        for (String part : value.split(",")) {
+            if (part.isBlank()) continue;
+            try {
+                sections.add(valueOf(part.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown section: " + part.trim());
+            }
+        }
+        if (sections.isEmpty()) return ALL;
+        // "callgraph" alone still means every per-file section
+        if (sections.equals(EnumSet.of(CALLGRAPH))) sections.addAll(ALL);
+        return sections;
+    }
+
+    // The per-file part of a request
+    public static Set<Section> perFile(Set<Section> sections) {
+        if (!sections.contains(CALLGRAPH)) return sections;
+
+        Set<Section> files = EnumSet.copyOf(sections);
+        files.remove(CALLGRAPH);
+        return files;
+    }
+
+    // Cache key part; empty for the full result so existing keys stay valid
+    public static String keySuffix(Set<Section> sections) {
+        if (sections.containsAll(ALL)) return "";
+
+        StringBuilder sb = new StringBuilder(":");
+        for (Section s : sections) {
+            if (sb.length() > 1) sb.append('+');
+            sb.append(s.name().toLowerCase());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One source file to analyze, whatever it came from: bytes, a buffer, text,
+ * a file on disk or a stream. The analyzer works on UTF-8 bytes, so every
+ * variant ends up as a ByteBuffer without further copies; files of at least
+ * MMAP_MIN_BYTES are memory-mapped instead of read. The bytes are never
+ * written to.
+ *
+ * fileName is what results report; path identifies the file across
+ * requests for incremental re-analysis (null: no state is kept) unless
+ * keepState is off; languageLevel is the Java version to parse it as (null: auto-detect, see
+ * ParserPools).
+ */
+public class SourceInput {
+
+    // smaller files are cheaper to read than to map
+    static final long MMAP_MIN_BYTES = 256 * 1024;
+
+    private final String fileName;
+    private final String path;
+    private final ByteBuffer bytes;
+    private final LanguageLevel languageLevel;
+    private final boolean keepState;
+
+    private SourceInput(String fileName, String path, ByteBuffer bytes) {
+        this(fileName, path, bytes, null, true);
+    }
+
+    private SourceInput(String fileName, String path, ByteBuffer bytes, LanguageLevel languageLevel,
+                        boolean keepState) {
+        this.fileName = fileName;
+        this.path = path;
+        this.bytes = bytes;
+        this.languageLevel = languageLevel;
+        this.keepState = keepState;
+    }
+
+    public static SourceInput of(String fileName, byte[] data) {
+        return new SourceInput(fileName, fileName, ByteBuffer.wrap(data));
+    }
+
+    // The buffer's remaining bytes; it must not change while being analyzed
+    public static SourceInput of(String fileName, ByteBuffer data) {
+        return new SourceInput(fileName, fileName, data.slice());
+    }
+
+    public static SourceInput of(String fileName, CharSequence text) {
+        return new SourceInput(fileName, fileName, StandardCharsets.UTF_8.encode(CharBuffer.wrap(text)));
+    }
+
+    // Reads the whole stream; the caller bounds its size
+    public static SourceInput of(String fileName, InputStream in) throws IOException {
+        return of(fileName, in.readAllBytes());
+    }
+
+    public static SourceInput of(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String path = file.toAbsolutePath().normalize().toString();
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < MMAP_MIN_BYTES) {
+                return new SourceInput(name, path, ByteBuffer.wrap(Files.readAllBytes(file)));
+            }
+            // the mapping stays valid after the channel is closed
+            return new SourceInput(name, path, ch.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    // Same content under another incremental identity (e.g. a path inside a ZIP)
+    public SourceInput withPath(String path) {
+        return new SourceInput(fileName, path, bytes, languageLevel, keepState);
+    }
+
+    // Same content, parsed as the given Java version (null: auto-detect)
+    public SourceInput withLanguageLevel(LanguageLevel languageLevel) {
+        return new SourceInput(fileName, path, bytes, languageLevel, keepState);
+    }
+
+    // Same content and path, but no incremental state is kept for it
+    public SourceInput withoutState() {
+        return new SourceInput(fileName, path, bytes, languageLevel, false);
+    }
+
+    public String getFileName() { return fileName; }
+    public String getPath() { return path; }
+    public LanguageLevel getLanguageLevel() { return languageLevel; }
+
+    // The incremental identity: the path, or null when no state is kept
+    public String getStateKey() {
+        return keepState ? path : null;
+    }
+
+    public long size() {
+        return bytes.remaining();
+    }
+
+    // A fresh view, so readers never move each other's position
+    public ByteBuffer bytes() {
+        return bytes.duplicate();
+    }
+}
@@ -0,0 +1,140 @@
+package com.smartcode.analyzer.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Counts lines directly over the raw UTF-8 bytes of a source file.
+ *
+ * LF, CRLF and lone CR all end a line. totalLines follows the historical
+ * definition code.split("\n").length on the normalized text: trailing
+ * empty lines are not counted, and a file without any line break is one line.
+ *
+ * Every counted line is also classified as blank (whitespace only),
+ * comment (comment text but no code) or code. String, char and text-block
+ * literals are tracked so that "//" or "/*" inside them is not a comment.
+ */
+public class SourceScanner {
+
+    private static final int CODE = 0;
+    private static final int LINE_COMMENT = 1;
+    private static final int BLOCK_COMMENT = 2;
+    private static final int STRING = 3;
+    private static final int CHAR = 4;
+    private static final int TEXT_BLOCK = 5;
+
+    public static class LineStats {
+        public int totalLines;
+        public int blankLines;
+        public int commentLines;
+        public int codeLines;
+    }
+
+    public static LineStats scan(ByteBuffer buf) {
+
+        int start = buf.position();
+        int end = buf.limit();
+
+        int state = CODE;
+
+        int segment = 0;          // index of the current line
+        int lastNonEmpty = -1;    // last line holding at least one byte
+        boolean lineHasCode = false;
+        boolean lineHasComment = false;
+
+        int blank = 0, comment = 0, code = 0;
+
+        for (int i = start; i < end; i++) {
+            byte b = buf.get(i);
+
+            if (b == '\n' || b == '\r') {
+                if (b == '\r' && i + 1 < end && buf.get(i + 1) == '\n') i++;
+
+                if (lineHasCode) code++;
+                else if (lineHasComment) comment++;
+                else blank++;
+
+                lineHasCode = false;
+                lineHasComment = false;
+                segment++;
+
+                // line comments and unterminated literals end with the line
+                if (state != BLOCK_COMMENT && state != TEXT_BLOCK) state = CODE;
+                continue;
+            }
+
+            lastNonEmpty = segment;
+            boolean space = b == ' ' || b == '\t' || b == '\f';
+
+            switch (state) {
+                case CODE:
+                    if (space) break;
+                    if (b == '/' && i + 1 < end && buf.get(i + 1) == '/') {
+                        state = LINE_COMMENT;
+                        lineHasComment = true;
+                        i++;
+                    } else if (b == '/' && i + 1 < end && buf.get(i + 1) == '*') {
+                        state = BLOCK_COMMENT;
+                        lineHasComment = true;
+                        i++;
+                    } else {
+                        lineHasCode = true;
+                        if (b == '\'') {
+                            state = CHAR;
+                        } else if (b == '"') {
+                            if (i + 2 < end && buf.get(i + 1) == '"' && buf.get(i + 2) == '"') {
+                                state = TEXT_BLOCK;
+                                i += 2;
+                            } else {
+                                state = STRING;
+                            }
+                        }
+                    }
+                    break;
+
+                case LINE_COMMENT:
+                    break;
+
+                case BLOCK_COMMENT:
+                    if (!space) lineHasComment = true;
+                    if (b == '*' && i + 1 < end && buf.get(i + 1) == '/') {
+                        state = CODE;
+                        i++;
+                    }
+                    break;
+
+                case STRING:
+                case CHAR:
+                case TEXT_BLOCK:
+                    if (!space) lineHasCode = true;
+
+                    if (b == '\\') {
+                        // skip the escaped byte unless it is a line break
+                        if (i + 1 < end && buf.get(i + 1) != '\n' && buf.get(i + 1) != '\r') i++;
+                    } else if (state == STRING && b == '"') {
+                        state = CODE;
+                    } else if (state == CHAR && b == '\'') {
+                        state = CODE;
+                    } else if (state == TEXT_BLOCK && b == '"'
+                            && i + 2 < end && buf.get(i + 1) == '"' && buf.get(i + 2) == '"') {
+                        state = CODE;
+                        i += 2;
+                    }
+                    break;
+            }
+        }
+
+        // last line (not terminated by a line break)
+        if (lineHasCode) code++;
+        else if (lineHasComment) comment++;
+        else blank++;
+
+        LineStats s = new LineStats();
+        s.totalLines = segment == 0 ? 1 : lastNonEmpty + 1;
+
+        // trailing empty lines are not part of totalLines; they were all counted as blank
+        s.blankLines = blank - (segment + 1 - s.totalLines);
+        s.commentLines = comment;
+        s.codeLines = code;
+        return s;
+    }
+}
@@ -1,64 +1,78 @@
 package com.smartcode.analyzer.util;
 
-import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.web.multipart.MultipartFile;
-
 import java.io.*;
-import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 public class ZipUtil {
 
-    // Extract ZIP → Temp Folder → Return list of Java Files
-    public static List<File> extractZipToTemp(InputStream zipStream) throws Exception {
-
-        File tempDir = Files.createTempDirectory("smartcode_zip").toFile();
-        List<File> extractedFiles = new ArrayList<>();
-
-        ZipInputStream zis = new ZipInputStream(zipStream);
-        ZipEntry entry;
+    // Receives one .java entry: its path inside the archive and its bytes,
+    // or null bytes when the entry is larger than the limit
+    public interface EntryHandler {
+        void accept(String path, byte[] data) throws Exception;
+    }
 
-        while ((entry = zis.getNextEntry()) != null) {
+    // Stream ZIP → hand every .java entry to the handler, in archive order.
+    // Entries are inflated straight into memory; nothing touches the disk.
+    // No more than limit + 1 bytes of an entry are kept (limit 0 = no limit);
+    // an entry whose header already declares more is not read at all.
+    // Returns the number of .java entries seen.
+    public static int forEachJavaEntry(InputStream zipStream, long limit, EntryHandler handler) throws Exception {
 
-            if (!entry.getName().endsWith(".java")) continue;
+        int count = 0;
 
-            File outFile = new File(tempDir, entry.getName());
-            outFile.getParentFile().mkdirs();
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(zipStream, 64 * 1024))) {
+            ZipEntry entry;
 
-            FileOutputStream fos = new FileOutputStream(outFile);
+            while ((entry = zis.getNextEntry()) != null) {
 
-            byte[] buffer = new byte[1024];
-            int len;
+                if (entry.isDirectory() || !entry.getName().endsWith(".java")) continue;
 
-            while ((len = zis.read(buffer)) > 0) {
-                fos.write(buffer, 0, len);
+                // read() stops at the end of the current entry; getNextEntry() skips what is left
+                byte[] data = tooLarge(entry.getSize(), limit) ? null : readAtMost(zis, limit);
+                handler.accept(entry.getName(), data != null && tooLarge(data.length, limit) ? null : data);
+                count++;
             }
-
-            fos.close();
-            extractedFiles.add(outFile);
         }
 
-        zis.close();
-        return extractedFiles;
+        return count;
+    }
+
+    // ZIP on disk → its .java entries, in archive order, read from the central
+    // directory only: other entries (resources, jars) are never inflated.
+    // ZipFile allows several threads to inflate different entries at once.
+    public static List<ZipEntry> javaEntries(ZipFile zip) {
+        return zip.stream()
+                .filter(e -> !e.isDirectory() && e.getName().endsWith(".java"))
+                .map(e -> (ZipEntry) e)
+                .toList();
     }
 
-    // Convert File → MultipartFile (Spring can read)
-    public static MultipartFile convertFileToMultipart(File file) throws Exception {
+    // The entry's bytes, or null when it is larger than limit (0 = no limit); never inflates more than limit + 1
+    public static byte[] read(ZipFile zip, ZipEntry entry, long limit) throws IOException {
+        if (tooLarge(entry.getSize(), limit)) return null;
+
+        try (InputStream in = zip.getInputStream(entry)) {
+            byte[] data = readAtMost(in, limit);
+            return tooLarge(data.length, limit) ? null : data;
+        }
+    }
 
-        FileInputStream fis = new FileInputStream(file);
+    // size -1 = not known yet
+    private static boolean tooLarge(long size, long limit) {
+        return limit > 0 && size > limit;
+    }
 
-        MultipartFile multipart = new MockMultipartFile(
-                file.getName(),
-                file.getName(),
-                "text/plain",
-                fis
-        );
+    private static byte[] readAtMost(InputStream in, long limit) throws IOException {
+        if (limit <= 0) return in.readAllBytes();
+        return in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, limit + 1));
+    }
 
-        fis.close();
-        return multipart;
+    // Base name of an archive path ("src/a/Foo.java" → "Foo.java")
+    public static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
     }
 
     // Delete folder recursively
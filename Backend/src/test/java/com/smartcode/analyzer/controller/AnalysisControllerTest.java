@@ -0,0 +1,227 @@
+package com.smartcode.analyzer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.service.AnalysisService;
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ScratchSpace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalysisControllerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String A = "class A { void f() { } }";
+    private static final String B = "class B { int g(int x) { if (x > 0) return x; return -x; } }";
+
+    @TempDir
+    Path dir;
+
+    private AnalysisExecutor executor;
+    private ScratchSpace scratch;
+    private ApplicationAvailabilityBean availability;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        executor = new AnalysisExecutor(2, 0);
+        scratch = new ScratchSpace(dir, 0, 0);
+        AnalysisService analysis = new AnalysisService(new ParserPools(LanguageLevel.JAVA_17, List.of(), 2, 1000),
+                new AnalysisCache(0, 0), new DiskAnalysisCache(dir, 0), new IncrementalAnalyzer(0),
+                new AnalysisBudget(0, 0, 0, 0), executor, scratch, new JdkTypeSolver(0),
+                1 << 20, 1 << 20, false, 100, 1 << 20, 10_000);
+        availability = new ApplicationAvailabilityBean();
+        mvc = MockMvcBuilders.standaloneSetup(new AnalysisController(analysis, MAPPER, availability)).build();
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+        scratch.close();
+    }
+
+    private static byte[] zipBytes(String... pathsAndSources) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < pathsAndSources.length; i += 2) {
+                out.putNextEntry(new ZipEntry(pathsAndSources[i]));
+                out.write(pathsAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static MockMultipartFile zip(String... pathsAndSources) throws IOException {
+        return new MockMultipartFile("file", "upload.zip", "application/zip", zipBytes(pathsAndSources));
+    }
+
+    // The lines of a streamed response, once it is complete
+    private List<JsonNode> ndjson(MvcResult started) throws Exception {
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) lines.add(MAPPER.readTree(line));
+        return lines;
+    }
+
+    @Test
+    void zipResultsComeBackInArchiveOrder() throws Exception {
+        mvc.perform(multipart("/api/analyzeZip").file(zip("b/B.java", B, "README", "-", "A.java", A)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].fileName").value("B.java"))
+                .andExpect(jsonPath("$[0].summary.totalConditionals").value(1))
+                .andExpect(jsonPath("$[1].fileName").value("A.java"));
+
+        mvc.perform(multipart("/api/analyzeZip").file(zip("README", "-")))
+                .andExpect(status().isBadRequest());
+    }
+
+    // one line per file, in archive order, then the summary line
+    @Test
+    void streamsOneLinePerFileThenTheSummary() throws Exception {
+        MvcResult started = mvc.perform(multipart("/api/analyzeZip").file(zip("b/B.java", B, "A.java", A))
+                        .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        List<JsonNode> lines = ndjson(started);
+        assertEquals(3, lines.size());
+        assertEquals("B.java", lines.get(0).get("fileName").asText());
+        assertEquals("A.java", lines.get(1).get("fileName").asText());
+        assertEquals("summary", lines.get(2).get("type").asText());
+        assertEquals(2, lines.get(2).get("files").asInt());
+    }
+
+    // a raw application/zip body is read while the response streams
+    @Test
+    void streamsARawZipBody() throws Exception {
+        MvcResult started = mvc.perform(post("/api/analyzeZip").contentType("application/zip")
+                        .accept("application/x-ndjson").content(zipBytes("A.java", A, "B.java", B)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        List<JsonNode> lines = ndjson(started);
+        assertEquals(List.of("A.java", "B.java", "summary"), List.of(
+                lines.get(0).get("fileName").asText(), lines.get(1).get("fileName").asText(),
+                lines.get(2).get("type").asText()));
+    }
+
+    @Test
+    void failuresAreAnErrorLine() throws Exception {
+        MvcResult started = mvc.perform(multipart("/api/analyzeZip").file(zip("A.java", A))
+                        .param("include", "nope").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isBadRequest())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode line = MAPPER.readTree(body);
+        assertEquals("error", line.get("type").asText());
+    }
+
+    // shard summaries merge into the summary of the whole
+    @Test
+    void summariesMerge() throws Exception {
+        String body = mvc.perform(multipart("/api/analyzeZip/summary").file(zip("A.java", A, "B.java", B)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.type").value("summary"))
+                .andExpect(jsonPath("$.files").value(2))
+                .andExpect(jsonPath("$.project.files").value(2))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode project = MAPPER.readTree(body).get("project");
+        double lines = project.get("totalLines").get("sum").asDouble();
+
+        mvc.perform(post("/api/analyzeZip/summary/merge").contentType("application/json")
+                        .content(MAPPER.writeValueAsString(List.of(project, project))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.files").value(4))
+                .andExpect(jsonPath("$.totalLines.count").value(4))
+                .andExpect(jsonPath("$.totalLines.sum").value(2 * lines));
+
+        ObjectNode broken = project.deepCopy();
+        broken.put("files", 3);
+        mvc.perform(post("/api/analyzeZip/summary/merge").contentType("application/json")
+                        .content(MAPPER.writeValueAsString(List.of(project, broken))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(startsWith("Invalid summary 1")));
+    }
+
+    // languageLevel picks the parser; without it the level is detected
+    @Test
+    void parsesAtTheRequestedLanguageLevel() throws Exception {
+        MockMultipartFile source = new MockMultipartFile("file", "P.java", "text/x-java-source",
+                "record P(int x) { int twice() { return 2 * x; } }".getBytes(StandardCharsets.UTF_8));
+
+        for (String level : new String[] {"17", "java_21", "auto"}) {
+            mvc.perform(multipart("/api/analyze").file(source).param("languageLevel", level))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.summary.totalMethods").value(1));
+        }
+        mvc.perform(multipart("/api/analyze").file(source))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.summary.totalMethods").value(1));
+
+        mvc.perform(multipart("/api/analyze").file(source).param("languageLevel", "banana"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Unsupported language level: banana")));
+    }
+
+    // load balancers see 503 until the warm-up is over
+    @Test
+    void readyOnlyOnceAcceptingTraffic() throws Exception {
+        mvc.perform(get("/api/analyze/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.readiness").value("REFUSING_TRAFFIC"));
+
+        availability.onApplicationEvent(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+        mvc.perform(get("/api/analyze/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.readiness").value("ACCEPTING_TRAFFIC"));
+    }
+}
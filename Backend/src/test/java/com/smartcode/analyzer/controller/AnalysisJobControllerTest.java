@@ -0,0 +1,144 @@
+package com.smartcode.analyzer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.service.AnalysisJobService;
+import com.smartcode.analyzer.service.AnalysisService;
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ScratchSpace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalysisJobControllerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private AnalysisExecutor executor;
+    private ScratchSpace scratch;
+    private AnalysisJobService jobs;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        executor = new AnalysisExecutor(2, 0);
+        scratch = new ScratchSpace(dir, 0, 0);
+        AnalysisService analysis = new AnalysisService(new ParserPools(LanguageLevel.JAVA_17, List.of(), 2, 1000),
+                new AnalysisCache(0, 0), new DiskAnalysisCache(dir, 0), new IncrementalAnalyzer(0),
+                new AnalysisBudget(0, 0, 0, 0), executor, scratch, new JdkTypeSolver(0),
+                1 << 20, 1 << 20, false, 100, 1 << 20, 10_000);
+        jobs = new AnalysisJobService(analysis, scratch, 1, 4, 3_600_000);
+        mvc = MockMvcBuilders.standaloneSetup(new AnalysisJobController(jobs)).build();
+    }
+
+    @AfterEach
+    void shutdown() {
+        jobs.shutdown();
+        executor.shutdown();
+        scratch.close();
+    }
+
+    private static MockMultipartFile zip(String name, String... pathsAndSources) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < pathsAndSources.length; i += 2) {
+                out.putNextEntry(new ZipEntry(pathsAndSources[i]));
+                out.write(pathsAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return new MockMultipartFile("file", name, "application/zip", bytes.toByteArray());
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return MAPPER.readTree(result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void submitPollAndFetchResults() throws Exception {
+        MvcResult submitted = mvc.perform(multipart("/api/jobs")
+                        .file(zip("upload.zip", "A.java", "class A { }", "b/B.java", "class B { void f() { } }")))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.fileName").value("upload.zip"))
+                .andReturn();
+        String id = json(submitted).get("id").asText();
+        assertEquals("/api/jobs/" + id, submitted.getResponse().getHeader("Location"));
+
+        long end = System.currentTimeMillis() + 10_000;
+        String state;
+        do {
+            assertTrue(System.currentTimeMillis() < end, "job didn't finish");
+            Thread.sleep(10);
+            state = json(mvc.perform(get("/api/jobs/" + id)).andExpect(status().isOk()).andReturn())
+                    .get("status").asText();
+        } while (state.equals("QUEUED") || state.equals("RUNNING"));
+        assertEquals("DONE", state);
+
+        mvc.perform(get("/api/jobs/" + id))
+                .andExpect(jsonPath("$.filesTotal").value(2))
+                .andExpect(jsonPath("$.filesDone").value(2))
+                .andExpect(jsonPath("$.summary.files").value(2));
+
+        mvc.perform(get("/api/jobs/" + id + "/results"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].fileName").value("A.java"))
+                .andExpect(jsonPath("$[1].fileName").value("B.java"));
+    }
+
+    @Test
+    void unknownJobsAreNotFound() throws Exception {
+        mvc.perform(get("/api/jobs/nope")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/jobs/nope/results")).andExpect(status().isNotFound());
+        mvc.perform(get("/api/jobs/nope/events")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void badUploadsAreRejectedUpFront() throws Exception {
+        mvc.perform(multipart("/api/jobs").file(zip("upload.tar", "A.java", "class A { }")))
+                .andExpect(status().isBadRequest());
+        mvc.perform(multipart("/api/jobs").file(zip("upload.zip", "A.java", "class A { }")).param("include", "nope"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/api/jobs/stats")).andExpect(jsonPath("$.jobs").value(0));
+    }
+
+    @Test
+    void aFullQueueIsServiceUnavailable() throws Exception {
+        jobs.shutdown();
+
+        mvc.perform(multipart("/api/jobs").file(zip("upload.zip", "A.java", "class A { }")))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("Location"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.smartcode.analyzer.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProjectMetricsTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    private static Metrics file(int lines, int complexity, double quality) {
+        Metrics m = new Metrics();
+        m.setTotalLines(lines);
+        m.setCodeLines(lines);
+        m.setCyclomaticComplexity(complexity);
+        m.setCodeQualityScore(quality);
+        return m;
+    }
+
+    private static ProjectMetrics project(int from, int to) {
+        ProjectMetrics p = new ProjectMetrics();
+        for (int i = from; i < to; i++) p.add(file(10 + i, 1 + i % 7, 100 - i % 100));
+        return p;
+    }
+
+    @Test
+    void mergeOfShardsEqualsOneAggregate() throws Exception {
+        ProjectMetrics whole = project(0, 500);
+
+        ProjectMetrics merged = new ProjectMetrics();
+        merged.merge(project(0, 200));
+        merged.merge(project(200, 500));
+
+        assertEquals(json.writeValueAsString(whole), json.writeValueAsString(merged));
+    }
+
+    @Test
+    void postedAggregateValidatesAfterARoundTrip() throws Exception {
+        ProjectMetrics copy = json.readValue(json.writeValueAsString(project(0, 50)), ProjectMetrics.class);
+        copy.validate();
+        assertEquals(50, copy.getFiles());
+    }
+
+    @Test
+    void nullStatisticIsRejectedNotANullPointer() throws Exception {
+        ObjectNode posted = json.valueToTree(project(0, 5));
+        posted.putNull("codeLines");
+        ProjectMetrics part = json.treeToValue(posted, ProjectMetrics.class);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, part::validate);
+        assertEquals("codeLines: count differs from files", e.getMessage());
+        new ProjectMetrics().merge(part);
+    }
+
+    @Test
+    void rejectsInconsistentCounts() {
+        ProjectMetrics p = project(0, 5);
+        p.setFiles(6);
+        assertThrows(IllegalArgumentException.class, p::validate);
+
+        ProjectMetrics histogram = project(0, 5);
+        histogram.setQualityHistogram(new long[] {-1, 6});
+        assertThrows(IllegalArgumentException.class, histogram::validate);
+
+        ProjectMetrics sketch = project(0, 5);
+        sketch.getTotalLines().getSketch().setOffset(Integer.MAX_VALUE - 1);
+        assertThrows(IllegalArgumentException.class, sketch::validate);
+    }
+}
@@ -0,0 +1,167 @@
+package com.smartcode.analyzer.service;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.service.AnalysisJobService.Job;
+import com.smartcode.analyzer.service.AnalysisJobService.Status;
+import com.smartcode.analyzer.service.AnalysisService.AnalysisResult;
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ScratchSpace;
+import com.smartcode.analyzer.util.Section;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisJobServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private AnalysisExecutor executor;
+    private ScratchSpace scratch;
+    private AnalysisService analysis;
+
+    @BeforeEach
+    void setUp() {
+        executor = new AnalysisExecutor(2, 0);
+        scratch = new ScratchSpace(dir, 0, 0);
+        analysis = new AnalysisService(new ParserPools(LanguageLevel.JAVA_17, List.of(), 2, 1000),
+                new AnalysisCache(0, 0), new DiskAnalysisCache(dir, 0), new IncrementalAnalyzer(0),
+                new AnalysisBudget(0, 0, 0, 0), executor, scratch, new JdkTypeSolver(0),
+                1 << 20, 1 << 20, false, 100, 1 << 20, 10_000);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+        scratch.close();
+    }
+
+    private static MockMultipartFile zip(String... pathsAndSources) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < pathsAndSources.length; i += 2) {
+                out.putNextEntry(new ZipEntry(pathsAndSources[i]));
+                out.write(pathsAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return new MockMultipartFile("file", "upload.zip", "application/zip", bytes.toByteArray());
+    }
+
+    private static Job await(AnalysisJobService jobs, String id) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10_000;
+        Job job = jobs.get(id);
+        while (job.getStatus() != Status.DONE && job.getStatus() != Status.FAILED) {
+            assertTrue(System.currentTimeMillis() < end, "job still " + job.getStatus());
+            Thread.sleep(10);
+        }
+        return job;
+    }
+
+    // the runner releases the upload's lease just after it marks the job finished
+    private void awaitReleased() throws InterruptedException {
+        long end = System.currentTimeMillis() + 10_000;
+        while ((int) scratch.stats().get("activeLeases") > 0) {
+            assertTrue(System.currentTimeMillis() < end, "lease still held");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void runsInTheBackgroundAndKeepsResultsInArchiveOrder() throws Exception {
+        AnalysisJobService jobs = new AnalysisJobService(analysis, scratch, 1, 4, 3_600_000);
+        try {
+            String a = "class A { void f() { } }";
+            String b = "class B { int g(int x) { return x > 0 ? x : -x; } }";
+            Job job = jobs.submit(zip("a/A.java", a, "notes.txt", "-", "b/B.java", b), Section.ALL);
+
+            assertEquals(job, await(jobs, job.getId()));
+            assertEquals(Status.DONE, job.getStatus());
+            assertNull(job.getError());
+            assertEquals(2, job.getFilesTotal());
+            assertEquals(2, job.getFilesDone());
+            assertEquals(a.length() + b.length(), job.getBytesTotal());
+            assertEquals(job.getBytesTotal(), job.getBytesDone());
+            assertEquals(0L, job.getEtaMs());
+            assertEquals(2, job.getSummary().getFiles());
+
+            List<AnalysisResult> results = jobs.results(job.getId());
+            assertEquals(List.of("A.java", "B.java"),
+                    results.stream().map(AnalysisResult::getFileName).collect(Collectors.toList()));
+
+            // the spooled upload is released with the job
+            awaitReleased();
+        } finally {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void aBrokenUploadFailsTheJob() throws Exception {
+        AnalysisJobService jobs = new AnalysisJobService(analysis, scratch, 1, 4, 3_600_000);
+        try {
+            MockMultipartFile broken = new MockMultipartFile("file", "upload.zip", "application/zip",
+                    "not a zip".getBytes(StandardCharsets.UTF_8));
+            Job job = await(jobs, jobs.submit(broken, Section.ALL).getId());
+
+            assertEquals(Status.FAILED, job.getStatus());
+            assertNotNull(job.getError());
+            assertNull(jobs.results(job.getId()));
+            awaitReleased();
+        } finally {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void aRejectedJobLeavesNothingBehind() throws Exception {
+        AnalysisJobService jobs = new AnalysisJobService(analysis, scratch, 1, 1, 3_600_000);
+        jobs.shutdown();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> jobs.submit(zip("A.java", "class A { }"), Section.ALL));
+        assertTrue(e.getMessage().contains("queue is full"), e.getMessage());
+        assertEquals(0, jobs.stats().get("jobs"));
+        assertEquals(0, scratch.stats().get("activeLeases"));
+        assertEquals(0L, scratch.stats().get("reservedBytes"));
+    }
+
+    @Test
+    void finishedJobsExpireAfterTheRetention() throws Exception {
+        AnalysisJobService jobs = new AnalysisJobService(analysis, scratch, 1, 4, 0);
+        try {
+            Job job = await(jobs, jobs.submit(zip("A.java", "class A { }"), Section.ALL).getId());
+            Thread.sleep(5);
+            jobs.expire();
+
+            assertNull(jobs.get(job.getId()));
+            assertNull(jobs.results(job.getId()));
+            assertNull(jobs.subscribe(job.getId()));
+        } finally {
+            jobs.shutdown();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.smartcode.analyzer.service;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.model.CallGraphSummary;
+import com.smartcode.analyzer.service.AnalysisService.AnalysisResult;
+import com.smartcode.analyzer.util.AnalysisBudget;
+import com.smartcode.analyzer.util.AnalysisCache;
+import com.smartcode.analyzer.util.AnalysisExecutor;
+import com.smartcode.analyzer.util.DiskAnalysisCache;
+import com.smartcode.analyzer.util.IncrementalAnalyzer;
+import com.smartcode.analyzer.util.JdkTypeSolver;
+import com.smartcode.analyzer.util.ParserPools;
+import com.smartcode.analyzer.util.ScratchSpace;
+import com.smartcode.analyzer.util.Section;
+import com.smartcode.analyzer.util.SourceInput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisServiceTest {
+
+    private static final String SHOP = "class Shop { int total(int n) { return n > 0 ? n : 0; } }";
+
+    @TempDir
+    Path dir;
+
+    private final List<AnalysisExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executors.forEach(AnalysisExecutor::shutdown);
+    }
+
+    private AnalysisService service(long maxBytes, int cacheEntries) {
+        return service(maxBytes, 0, cacheEntries);
+    }
+
+    // maxBytes: the byte budget, maxZipMs: the ZIP deadline (0 = off); cacheEntries: in-memory cache size
+    // (0 = off); the disk cache and incremental state are off
+    private AnalysisService service(long maxBytes, long maxZipMs, int cacheEntries) {
+        AnalysisExecutor executor = new AnalysisExecutor(2, 0);
+        executors.add(executor);
+        return new AnalysisService(new ParserPools(LanguageLevel.JAVA_17, List.of(), 2, 1000),
+                new AnalysisCache(cacheEntries, 1 << 20), new DiskAnalysisCache(dir, 0), new IncrementalAnalyzer(0),
+                new AnalysisBudget(maxBytes, 0, 0, maxZipMs), executor, new ScratchSpace(dir, 0, 0), new JdkTypeSolver(0),
+                1 << 20, 1 << 20, false, 100, 1 << 20, 10_000);
+    }
+
+    private File zip(String... pathsAndSources) throws IOException {
+        File file = dir.resolve("upload.zip").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < pathsAndSources.length; i += 2) {
+                out.putNextEntry(new ZipEntry(pathsAndSources[i]));
+                out.write(pathsAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void identicalEntriesAreParsedOnce() throws Exception {
+        File upload = zip("a/Shop.java", SHOP, "b/Shop.java", SHOP, "Other.java", "class Other { }");
+
+        List<AnalysisResult> results = new ArrayList<>();
+        AnalysisService.ZipSummary summary = service(0, 0).analyzeZip(upload, Section.ALL, results::add);
+
+        assertEquals(3, summary.getFiles());
+        assertEquals(1, summary.getParsesSaved());
+        assertNull(results.get(0).getDuplicateOf());
+        assertEquals("a/Shop.java", results.get(1).getDuplicateOf());
+        assertNull(results.get(2).getDuplicateOf());
+        assertSame(results.get(0).getSummary(), results.get(1).getSummary());
+    }
+
+    // a group owner that fails before it has a result still releases its duplicates
+    @Test
+    void failedOwnerLetsDuplicatesAnalyzeOnTheirOwn() {
+        AnalysisService service = service(SHOP.length(), 0);
+        AnalysisService.SharedEntry owner = new AnalysisService.SharedEntry("Big.java");
+
+        AnalysisResult failed = service.analyze(SourceInput.of("Big.java", (SHOP + " ").getBytes()),
+                AnalysisService.Mode.FULL, Section.ALL, owner, null, null);
+        assertEquals("BYTES", failed.getBudgetExceeded());
+        assertTrue(owner.result.isDone());
+
+        AnalysisResult duplicate = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                service.analyze(SourceInput.of("Shop.java", SHOP.getBytes()),
+                        AnalysisService.Mode.FULL, Section.ALL, null, owner, null));
+        assertNull(duplicate.getBudgetExceeded());
+        assertNull(duplicate.getDuplicateOf());
+        assertNotNull(duplicate.getSummary());
+    }
+
+    @Test
+    void nestingDeeperThanTheStackIsABudgetLimit() {
+        String deep = "class Deep { int f() { return " + "(".repeat(100_000) + "1" + ")".repeat(100_000) + "; } }";
+
+        AnalysisResult result = service(0, 0).analyze(SourceInput.of("Deep.java", deep),
+                AnalysisService.Mode.FULL, Section.ALL);
+
+        assertEquals("DEPTH", result.getBudgetExceeded());
+        assertEquals(1, result.getSummary().getTotalLines());
+    }
+
+    // entries not started before the request ran out of time are reported unread
+    @Test
+    void zipDeadlineStopsTheRemainingEntries() throws Exception {
+        String[] entries = new String[2 * 200];
+        for (int i = 0; i < 200; i++) {
+            entries[2 * i] = "p" + i + "/Shop.java";
+            entries[2 * i + 1] = SHOP.replace("Shop", "Shop" + i);
+        }
+        File upload = zip(entries);
+
+        List<AnalysisResult> results = new ArrayList<>();
+        AnalysisService.ZipSummary summary = service(0, 1, 0).analyzeZip(upload, Section.ALL, results::add);
+
+        assertEquals(200, results.size());
+        AnalysisResult last = results.get(199);
+        assertEquals("TIME", last.getBudgetExceeded());
+        assertNull(last.getSummary());
+        assertTrue(last.getMessage().endsWith("the file was not read"), last.getMessage());
+        assertTrue(summary.getBudgetExceeded() > 0);
+    }
+
+    @Test
+    void callGraphCoversParsedAndCachedEntries() throws Exception {
+        AnalysisService service = service(0, 100);
+        File upload = zip(
+                "app/A.java", "package app; class A { void a() { new B().b(); } }",
+                "app/B.java", "package app; class B { B() { } void b() { new A().a(); } }");
+        Set<Section> include = EnumSet.of(Section.SUMMARY, Section.CALLGRAPH);
+
+        // the second run takes every entry's metrics from the cache
+        for (int run = 0; run < 2; run++) {
+            CallGraphSummary graph = service.analyzeZip(upload, include, r -> { }).getCallGraph();
+            assertEquals(3, graph.getMethods(), "run " + run);
+            assertEquals(3, graph.getCalls(), "run " + run);
+            assertEquals(1, graph.getRecursiveCycles(), "run " + run);
+            assertEquals(0, graph.getSkippedFiles(), "run " + run);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisCacheTest {
+
+    private static final CodeParserUtil.Result VALUE = result("class A { void f() { g(); } void g() { } }");
+
+    private static CodeParserUtil.Result result(String source) {
+        try {
+            ParserPools pools = new ParserPools(LanguageLevel.JAVA_17, List.of(), 1, 1000);
+            return CodeParserUtil.parseJavaFile(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)),
+                    pools.getDefault());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(int i) {
+        return String.format("%064x", i) + ":JAVA_17";
+    }
+
+    private static long weight() {
+        return AnalysisCache.estimateBytes(key(0), VALUE);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        AnalysisCache cache = new AnalysisCache(3, 1 << 20, 1);
+        cache.put(key(1), VALUE);
+        cache.put(key(2), VALUE);
+        cache.put(key(3), VALUE);
+
+        // read, so key(2) is now the least recently used
+        assertSame(VALUE, cache.get(key(1)));
+        cache.put(key(4), VALUE);
+
+        assertNull(cache.get(key(2)));
+        assertNotNull(cache.get(key(1)));
+        assertNotNull(cache.get(key(3)));
+        assertNotNull(cache.get(key(4)));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void theByteCapEvictsBeforeTheEntryCap() {
+        AnalysisCache cache = new AnalysisCache(100, 2 * weight(), 1);
+        for (int i = 0; i < 5; i++) cache.put(key(i), VALUE);
+
+        assertEquals(2, cache.stats().get("entries"));
+        assertEquals(2 * weight(), cache.stats().get("bytes"));
+        assertNotNull(cache.get(key(3)));
+        assertNotNull(cache.get(key(4)));
+
+        // heavier than the whole cache: not kept, nothing evicted for it
+        AnalysisCache tiny = new AnalysisCache(100, weight() - 1, 1);
+        tiny.put(key(0), VALUE);
+        assertNull(tiny.get(key(0)));
+        assertEquals(0L, tiny.stats().get("evictions"));
+    }
+
+    // each stripe holds its share of both limits, so the whole cache stays within them
+    @Test
+    void stripesShareTheLimits() {
+        AnalysisCache cache = new AnalysisCache(64, 1 << 20, 8);
+        assertEquals(8, cache.stats().get("stripes"));
+
+        for (int i = 0; i < 1000; i++) cache.put(key(i), VALUE);
+
+        int entries = (int) cache.stats().get("entries");
+        assertTrue(entries <= 64, "entries " + entries);
+        assertTrue(entries > 32, "entries " + entries);
+        assertEquals(entries * weight(), cache.stats().get("bytes"));
+        assertEquals(1000L - entries, cache.stats().get("evictions"));
+
+        // never more stripes than entries
+        assertEquals(2, new AnalysisCache(3, 1 << 20, 16).stats().get("stripes"));
+        assertFalse(new AnalysisCache(0, 1 << 20).isEnabled());
+    }
+}
@@ -0,0 +1,103 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisExecutorTest {
+
+    private final List<AnalysisExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executors.forEach(AnalysisExecutor::shutdown);
+    }
+
+    private AnalysisExecutor executor(int workers, int maxInFlight, int maxQueued, long queueTimeoutMs) {
+        AnalysisExecutor executor = new AnalysisExecutor(workers, maxInFlight, maxQueued, queueTimeoutMs);
+        executors.add(executor);
+        return executor;
+    }
+
+    // later files finish first; the sink still sees them in submission order
+    @Test
+    void deliversInSubmissionOrder() throws Exception {
+        AnalysisExecutor executor = executor(4, 3, 0, 0);
+        List<Integer> delivered = new ArrayList<>();
+
+        try (AnalysisExecutor.Window<Integer> window = executor.window(delivered::add)) {
+            for (int i = 0; i < 10; i++) {
+                int n = i;
+                window.submit(() -> {
+                    Thread.sleep((10 - n) * 5L);
+                    return n;
+                });
+                assertTrue(delivered.size() >= n - 2, "at most 3 in flight");
+            }
+            window.finish();
+        }
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), delivered);
+    }
+
+    @Test
+    void closingCancelsWhatIsLeft() throws Exception {
+        AnalysisExecutor executor = executor(1, 4, 0, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Integer> delivered = new ArrayList<>();
+
+        try (AnalysisExecutor.Window<Integer> window = executor.window(delivered::add)) {
+            window.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return 0;
+            });
+            window.submit(() -> 1);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+        }
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS), "the running file is interrupted");
+        assertEquals(List.of(), delivered);
+    }
+
+    @Test
+    void aFullQueueFailsAfterTheTimeout() throws Exception {
+        AnalysisExecutor executor = executor(1, 10, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        try (AnalysisExecutor.Window<Integer> window = executor.window(r -> { })) {
+            window.submit(() -> {
+                started.countDown();
+                release.await();
+                return 0;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            window.submit(() -> 1);     // the one queue slot
+
+            long start = System.nanoTime();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> window.submit(() -> 2));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "waited for a slot");
+            assertTrue(e.getMessage().contains("overloaded"), e.getMessage());
+
+            release.countDown();
+            window.finish();
+        }
+
+        assertEquals(1L, executor.stats().get("rejected"));
+        assertEquals(1L, executor.stats().get("queueWaits"));
+    }
+}
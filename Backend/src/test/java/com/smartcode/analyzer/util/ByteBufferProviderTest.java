@@ -0,0 +1,66 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteBufferProviderTest {
+
+    // everything the provider hands out, window chars at a time
+    private static String readAll(ByteBufferProvider provider, int window) {
+        StringBuilder out = new StringBuilder();
+        char[] buffer = new char[window + 2];
+        int n;
+        while ((n = provider.read(buffer, 1, window)) != -1) {
+            out.append(buffer, 1, n);
+        }
+        return out.toString();
+    }
+
+    @Test
+    void decodesAcrossWindowBoundaries() {
+        // two-, three- and four-byte characters, a surrogate pair among them
+        String source = "class Ä { String s = \"€ 😀 ü\"; }\n";
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+
+        for (int window = 2; window <= 9; window++) {
+            assertEquals(source, readAll(new ByteBufferProvider(ByteBuffer.wrap(bytes)), window), "window " + window);
+        }
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertEquals(source, readAll(new ByteBufferProvider(direct), 4));
+        // the caller's buffer is read through a duplicate
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    void malformedInputIsReplacedLikeNewString() {
+        byte[] bytes = {'a', (byte) 0xC3, 'b', (byte) 0xFF, (byte) 0xE2, (byte) 0x82};
+
+        assertEquals(new String(bytes, StandardCharsets.UTF_8),
+                readAll(new ByteBufferProvider(ByteBuffer.wrap(bytes)), 3));
+    }
+
+    @Test
+    void anExpiredDeadlineStopsTheRead() throws Exception {
+        Deadline spent = Deadline.after(1);
+        Thread.sleep(5);
+
+        ByteBufferProvider provider = new ByteBufferProvider(ByteBuffer.wrap("class A { }".getBytes()), spent);
+        assertFalse(provider.deadlineHit());
+
+        BudgetExceededException e = assertThrows(BudgetExceededException.class,
+                () -> provider.read(new char[8], 0, 8));
+        assertEquals(BudgetExceededException.Limit.TIME, e.getLimit());
+        assertTrue(provider.deadlineHit());
+
+        // nothing asked for, nothing checked
+        assertEquals(0, new ByteBufferProvider(ByteBuffer.allocate(1), spent).read(new char[1], 0, 0));
+    }
+}
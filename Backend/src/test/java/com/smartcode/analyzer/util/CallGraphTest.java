@@ -0,0 +1,95 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallGraphTest {
+
+    // nodes 0..n-1 and edges given as from, to, from, to, ...
+    private static CallGraph graph(int n, int... edges) {
+        CallGraph.Builder b = new CallGraph.Builder();
+        for (int i = 0; i < n; i++) b.addNode();
+        for (int i = 0; i < edges.length; i += 2) b.addEdge(edges[i], edges[i + 1]);
+        return b.build();
+    }
+
+    @Test
+    void emptyGraph() {
+        CallGraph g = graph(0);
+        assertEquals(0, g.longestChain().length);
+        assertTrue(g.cycles().isEmpty());
+    }
+
+    @Test
+    void duplicateEdgesCountOnce() {
+        CallGraph g = graph(3, 0, 1, 0, 1, 0, 2, 1, 2);
+
+        assertEquals(3, g.edgeCount());
+        assertEquals(2, g.fanOut(0));
+        assertArrayEquals(new int[] {0, 1, 2}, g.fanIn());
+    }
+
+    @Test
+    void longestChainTakesTheLongerPath() {
+        CallGraph g = graph(4, 0, 3, 0, 1, 1, 2, 2, 3);
+
+        assertArrayEquals(new int[] {0, 1, 2, 3}, g.longestChain());
+        assertTrue(g.cycles().isEmpty());
+        assertEquals(4, g.componentCount());
+    }
+
+    @Test
+    void cycleCollapsesIntoOneLevel() {
+        // 0 -> 1 -> 2 -> 0, and 2 calls on to 3
+        CallGraph g = graph(5, 0, 1, 1, 2, 2, 0, 2, 3, 4, 4);
+
+        List<int[]> cycles = g.cycles();
+        assertEquals(2, cycles.size());
+        assertArrayEquals(new int[] {0, 1, 2}, cycles.get(0));
+        assertArrayEquals(new int[] {4}, cycles.get(1));
+
+        // the cycle is reported by the member that calls out of it
+        assertArrayEquals(new int[] {2, 3}, g.longestChain());
+
+        int[] comp = g.components();
+        assertEquals(comp[0], comp[1]);
+        assertEquals(comp[0], comp[2]);
+        assertTrue(comp[3] < comp[0], "callees are numbered first");
+        assertEquals(3, g.componentCount());
+    }
+
+    @Test
+    void selfCallIsAOneNodeCycle() {
+        CallGraph g = graph(1, 0, 0);
+
+        assertEquals(1, g.cycles().size());
+        assertArrayEquals(new int[] {0}, g.longestChain());
+    }
+
+    @Test
+    void deepChainDoesNotOverflowTheStack() {
+        int n = 200_000;
+        int[] edges = new int[2 * (n - 1)];
+        for (int i = 0; i < n - 1; i++) {
+            edges[2 * i] = i;
+            edges[2 * i + 1] = i + 1;
+        }
+        CallGraph chain = graph(n, edges);
+        assertEquals(n, chain.longestChain().length);
+
+        // the same chain closed into one big cycle
+        int[] ring = Arrays.copyOf(edges, edges.length + 2);
+        ring[edges.length] = n - 1;
+        ring[edges.length + 1] = 0;
+        CallGraph cycle = graph(n, ring);
+        assertEquals(1, cycle.componentCount());
+        assertEquals(1, cycle.longestChain().length);
+        assertEquals(n, cycle.cycles().get(0).length);
+    }
+}
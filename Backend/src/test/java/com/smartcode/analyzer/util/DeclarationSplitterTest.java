@@ -0,0 +1,131 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeclarationSplitterTest {
+
+    private static final String SOURCE = String.join("\n",
+            "package demo;",
+            "import java.util.List;",
+            "",
+            "@SuppressWarnings({\"a\", \"b\"})",
+            "public class Cart {",
+            "    private int[] sizes = {1, 2};",
+            "    private final String name;",
+            "",
+            "    Cart(String name) { this.name = name; }",
+            "",
+            "    // a comment between members",
+            "    int total() {",
+            "        Runnable r = () -> { };",
+            "        return \"}\".length();",
+            "    }",
+            "    static class Line { int qty; }",
+            "    { sizes = new int[] {3}; }",
+            "}",
+            "enum Unit { PIECE, BOX; int size() { return 1; } }",
+            "");
+
+    private static ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static DeclarationSplitter.Layout split(String source) {
+        return DeclarationSplitter.split(bytes(source));
+    }
+
+    private static String text(String source, DeclarationSplitter.Span span) {
+        return new String(source.getBytes(StandardCharsets.UTF_8), span.start, span.end - span.start,
+                StandardCharsets.UTF_8);
+    }
+
+    private static List<String> hashes(DeclarationSplitter.Layout layout) {
+        return layout.spans().stream().map(s -> s.hash).collect(Collectors.toList());
+    }
+
+    @Test
+    void splitsClassesIntoMembersAndKeepsEnumsWhole() {
+        DeclarationSplitter.Layout layout = split(SOURCE);
+        assertNotNull(layout);
+        assertEquals(2, layout.types.size());
+
+        List<DeclarationSplitter.Span> members = layout.types.get(0).members;
+        assertEquals(List.of(
+                "private int[] sizes = {1, 2};",
+                "private final String name;",
+                "Cart(String name) { this.name = name; }",
+                "int total() {\n        Runnable r = () -> { };\n        return \"}\".length();\n    }",
+                "static class Line { int qty; }",
+                "{ sizes = new int[] {3}; }"),
+                members.stream().map(s -> text(SOURCE, s)).collect(Collectors.toList()));
+        assertEquals(List.of(6, 7, 9, 12, 16, 17),
+                members.stream().map(s -> s.line).collect(Collectors.toList()));
+        assertFalse(members.get(0).typeDeclaration);
+
+        DeclarationSplitter.Span whole = layout.types.get(1).whole;
+        assertNull(layout.types.get(1).members);
+        assertEquals("enum Unit { PIECE, BOX; int size() { return 1; } }", text(SOURCE, whole));
+        assertEquals(19, whole.line);
+        assertTrue(whole.typeDeclaration);
+    }
+
+    @Test
+    void editsBetweenMembersKeepTheSkeleton() {
+        DeclarationSplitter.Layout before = split(SOURCE);
+        DeclarationSplitter.Layout after = split(SOURCE
+                .replace("// a comment between members", "/* another comment */\n\n")
+                .replace("import java.util.List;", "import  java.util.List ;"));
+
+        assertEquals(before.skeletonHash, after.skeletonHash);
+        assertEquals(hashes(before), hashes(after));
+    }
+
+    @Test
+    void memberEditChangesOnlyThatHash() {
+        DeclarationSplitter.Layout before = split(SOURCE);
+        DeclarationSplitter.Layout after = split(SOURCE.replace("return \"}\".length();", "return 0;"));
+
+        assertEquals(before.skeletonHash, after.skeletonHash);
+        List<String> a = hashes(before);
+        List<String> b = hashes(after);
+        for (int i = 0; i < a.size(); i++) {
+            assertEquals(i != 3, a.get(i).equals(b.get(i)), "span " + i);
+        }
+    }
+
+    @Test
+    void headerEditChangesTheSkeleton() {
+        assertNotEquals(split(SOURCE).skeletonHash,
+                split(SOURCE.replace("public class Cart {", "public class Cart implements Runnable {")).skeletonHash);
+    }
+
+    @Test
+    void annotationTypesStayWhole() {
+        DeclarationSplitter.Layout layout = split("@interface Tag { String value() default \"x\"; }");
+        assertNotNull(layout);
+        assertNull(layout.types.get(0).members);
+    }
+
+    @Test
+    void refusesWhatItCannotSplitReliably() {
+        assertNull(split("class A { void f() { }"));
+        assertNull(split("class A { } }"));
+        assertNull(split("class A { String s = \"open; }"));
+        assertNull(split("class A { /* open }"));
+        assertNull(split("class A { int \\u0061 = 1; }"));
+        assertNull(split("class A { String s = \"\\u0022\"; }"));
+        assertNotNull(split("class A { String s = \"\\u0041\"; }"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.smartcode.analyzer.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiskAnalysisCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private static CodeParserUtil.Result result(String source) throws Exception {
+        ParserPools pools = new ParserPools(LanguageLevel.JAVA_17, List.of(), 1, 1000);
+        return CodeParserUtil.parseJavaFile(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)),
+                pools.getDefault());
+    }
+
+    private static String key(int i) {
+        return String.format("%064x", i) + ":JAVA_17+unicode";
+    }
+
+    // what the cache holds on disk, temp files included
+    private static long bytesOnDisk(Path dir) throws Exception {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+        }
+    }
+
+    private static long statBytes(DiskAnalysisCache cache) {
+        return (long) cache.stats().get("bytes");
+    }
+
+    @Test
+    void roundTripsEverySection() throws Exception {
+        DiskAnalysisCache cache = new DiskAnalysisCache(dir, 1 << 20);
+        try {
+            CodeParserUtil.Result stored =
+                    result("class A { int f(int x) { if (x > 0) return g(); return 0; } int g() { return 1; } }");
+            cache.put(key(1), stored);
+
+            CodeParserUtil.Result read = cache.get(key(1));
+            assertNotNull(read);
+            assertEquals(MAPPER.valueToTree(stored.metrics), MAPPER.valueToTree(read.metrics));
+            assertEquals(MAPPER.valueToTree(stored.flow), MAPPER.valueToTree(read.flow));
+            assertEquals(MAPPER.valueToTree(stored.methods), MAPPER.valueToTree(read.methods));
+
+            assertNull(cache.get(key(2)));
+            assertEquals(bytesOnDisk(dir), statBytes(cache));
+
+            // a corrupt entry is a miss, and is dropped
+            Files.writeString(cache.pathFor(key(1)), "{ not json");
+            assertNull(cache.get(key(1)));
+            assertFalse(Files.exists(cache.pathFor(key(1))));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void otherVersionsAreNeitherReadNorKept() throws Exception {
+        DiskAnalysisCache cache = new DiskAnalysisCache(dir, 1 << 20);
+        try {
+            // the same entry as another analyzer version would have written it
+            Path current = cache.pathFor(key(1));
+            Path root = dir.resolve(DiskAnalysisCache.SUBDIR);
+            Path old = root.resolve("v0").resolve(root.resolve("v" + CodeParserUtil.ANALYZER_VERSION).relativize(current));
+            Files.createDirectories(old.getParent());
+            Files.write(old, MAPPER.writeValueAsBytes(new DiskAnalysisCache.Stored()));
+
+            Path notes = Files.createDirectories(root.resolve("notes"));
+
+            assertNull(cache.get(key(1)));
+
+            cache.compact();
+            assertFalse(Files.exists(root.resolve("v0")));
+            assertTrue(Files.exists(notes), "only v<n> directories are removed");
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyReadOverTheCap() throws Exception {
+        CodeParserUtil.Result value = result("class A { void f() { } }");
+
+        DiskAnalysisCache large = new DiskAnalysisCache(dir, 1 << 20);
+        for (int i = 0; i < 10; i++) {
+            large.put(key(i), value);
+            // written a minute apart, oldest first
+            Files.setLastModifiedTime(large.pathFor(key(i)), FileTime.fromMillis(1_000_000 + i * 60_000L));
+        }
+        // read, so it counts as used now
+        assertNotNull(large.get(key(0)));
+        large.close();
+
+        long entry = Files.size(large.pathFor(key(0)));
+
+        // reopening with a lower cap compacts before the constructor returns
+        DiskAnalysisCache small = new DiskAnalysisCache(dir, entry * 5);
+        try {
+            long kept = Stream.iterate(0, i -> i + 1).limit(10)
+                    .filter(i -> Files.exists(small.pathFor(key(i)))).count();
+
+            // down to 90% of the cap: four entries
+            assertEquals(4, kept);
+            assertTrue(Files.exists(small.pathFor(key(0))), "recently read");
+            for (int i = 7; i < 10; i++) assertTrue(Files.exists(small.pathFor(key(i))), "newest " + i);
+            assertEquals(6L, small.stats().get("evictions"));
+            assertEquals(bytesOnDisk(dir), statBytes(small));
+        } finally {
+            small.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.smartcode.analyzer.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.model.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FastScannerTest {
+
+    private static ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Metrics scan(String source) {
+        return FastScanner.scan(bytes(source)).metrics;
+    }
+
+    // the sample file is the one the class doc quotes full-mode parity for
+    @Test
+    void fastModeMatchesFullModeOnTheSampleFile() throws Exception {
+        byte[] sample = Files.readAllBytes(Paths.get("samplfiles/javacode2.java"));
+        ParserPools pools = new ParserPools(LanguageLevel.JAVA_17, List.of(), 1, 1000);
+
+        CodeParserUtil.Result full = CodeParserUtil.parseJavaFile(ByteBuffer.wrap(sample), pools.getDefault());
+        CodeParserUtil.Result fast = FastScanner.scan(ByteBuffer.wrap(sample));
+
+        // every Metrics field, compared as JSON
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.valueToTree(full.metrics), mapper.valueToTree(fast.metrics));
+        assertEquals(1197, fast.metrics.getTotalLines());
+        assertEquals(173, fast.metrics.getCyclomaticComplexity());
+
+        assertEquals(full.flow.getTopLevelCalls(), fast.flow.getTopLevelCalls());
+    }
+
+    @Test
+    void textBlocksAreOneLiteral() {
+        Metrics m = scan(String.join("\n",
+                "class A {",
+                "    String t = \"\"\"",
+                "        if (x) { while (y) foo(); }",
+                "        \\\"\"\" still inside \" and \"\"",
+                "        \"\"\";",
+                "    void f() { if (t.isEmpty()) g(); }",
+                "}"));
+
+        assertEquals(1, m.getTotalConditionals());
+        assertEquals(0, m.getTotalLoops());
+        assertEquals(1, m.getTotalMethods());
+        assertEquals(1, m.getTotalVariables());
+    }
+
+    @Test
+    void quoteCharactersDontOpenStrings() {
+        Metrics m = scan("class A { char q = '\"'; char b = '\\''; void f() { if (q == '\"') g(); } }");
+
+        assertEquals(2, m.getTotalVariables());
+        assertEquals(1, m.getTotalMethods());
+        assertEquals(1, m.getTotalConditionals());
+    }
+
+    @Test
+    void commentMarkersInsideStringsAreText() {
+        Metrics m = scan(String.join("\n",
+                "class A {",
+                "    String a = \"/* not a comment\";",
+                "    String b = \"// nor this\"; int c;",
+                "    void f() { for (;;) { } } // while (x) { }",
+                "    /* \" if (y) */ void g() { }",
+                "}"));
+
+        assertEquals(3, m.getTotalVariables());
+        assertEquals(2, m.getTotalMethods());
+        assertEquals(1, m.getTotalLoops());
+        assertEquals(0, m.getTotalConditionals());
+    }
+
+    // escapes are skipped as part of their literal; they never end it early
+    @Test
+    void unicodeEscapesStayInsideLiterals() {
+        Metrics m = scan("class A { String s = \"\\u0041 if (x) \\\\\"; char c = '\\u00e9'; void f() { } }");
+
+        assertEquals(0, m.getTotalConditionals());
+        assertEquals(2, m.getTotalVariables());
+        assertEquals(1, m.getTotalMethods());
+    }
+
+    @Test
+    void countsTokensWithoutCommentsOrWhitespace() {
+        assertEquals(0, FastScanner.countTokens(bytes("")));
+        assertEquals(0, FastScanner.countTokens(bytes("  // only a comment\n/* and another */ ")));
+        assertEquals(5, FastScanner.countTokens(bytes("int a = 1;")));
+        assertEquals(5, FastScanner.countTokens(bytes("int /* x */ a =\n  \"a; b; c\" ; // tail")));
+        assertEquals(4, FastScanner.countTokens(bytes("s = \"\"\"\n  one two three\n  \"\"\";")));
+        assertEquals(3, FastScanner.countTokens(bytes("x -> y")));
+        assertEquals(3, FastScanner.countTokens(bytes("A::b")));
+    }
+
+    @Test
+    void countingStopsPastTheMaximum() {
+        ByteBuffer source = bytes("int a = 1; int b = 2;");
+
+        assertEquals(10, FastScanner.countTokens(source));
+        assertEquals(4, FastScanner.countTokens(source, 3));
+        assertEquals(10, FastScanner.countTokens(source, 10));
+    }
+}
@@ -0,0 +1,58 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HashUtilTest {
+
+    private static String hash(String s) {
+        return HashUtil.sha256Normalized(ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String hashDirect(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return HashUtil.sha256Normalized(direct);
+    }
+
+    @Test
+    void lineEndingsHashAlike() {
+        String lf = hash("class A {\n    int x;\n}\n");
+
+        assertEquals(lf, hash("class A {\r\n    int x;\r\n}\r\n"));
+        assertEquals(lf, hash("class A {\r    int x;\r}\r"));
+        assertEquals(lf, hash("class A {\r\n    int x;\r}\n"));
+
+        // a CRLF is one line break, not two
+        assertNotEquals(lf, hash("class A {\n\n    int x;\n\n}\n\n"));
+        assertNotEquals(lf, hash("class A {\n    int y;\n}\n"));
+    }
+
+    // a direct or mapped buffer hashes the same as the heap copy of its bytes
+    @Test
+    void directBuffersHashLikeHeapBuffers() {
+        for (String s : new String[] {"", "\r", "a\r\nb\rc\n", "x\r\n\r\n", "é\r\n"}) {
+            assertEquals(hash(s), hashDirect(s), s);
+            assertEquals(hash(s.replace("\r\n", "\n").replace('\r', '\n')), hashDirect(s), s);
+        }
+    }
+
+    @Test
+    void onlyTheRemainingBytesAreHashedAndThePositionIsKept() {
+        byte[] bytes = "// headerclass A { }\r\n".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer heap = ByteBuffer.wrap(bytes).position(9);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).position(9);
+
+        assertEquals(hash("class A { }\n"), HashUtil.sha256Normalized(heap));
+        assertEquals(hash("class A { }\n"), HashUtil.sha256Normalized(direct));
+        assertEquals(9, heap.position());
+        assertEquals(9, direct.position());
+        assertEquals(hash("class A { }\n"), HashUtil.sha256Normalized(bytes, 9, bytes.length - 9));
+    }
+}
@@ -0,0 +1,95 @@
+package com.smartcode.analyzer.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalAnalyzerTest {
+
+    private static final String ORIGINAL = String.join("\n",
+            "package demo;",
+            "",
+            "import java.util.List;",
+            "",
+            "public class Orders {",
+            "    private int count = start();",
+            "",
+            "    int start() {",
+            "        return 0;",
+            "    }",
+            "",
+            "    // totals every order",
+            "    int total(List<Integer> orders) {",
+            "        int sum = 0;",
+            "        for (int o : orders) {",
+            "            sum += o;",
+            "        }",
+            "        return sum;",
+            "    }",
+            "",
+            "    void report(List<Integer> orders) {",
+            "        System.out.println(total(orders));",
+            "    }",
+            "}",
+            "",
+            "enum Status { OPEN, CLOSED }",
+            "");
+
+    // total() gains a branch, a call and two lines, which moves report() down
+    private static final String EDITED = ORIGINAL.replace(
+            "            sum += o;\n",
+            "            if (o < 0) {\n"
+                    + "                throw new IllegalArgumentException(describe(o));\n"
+                    + "            }\n"
+                    + "            sum += o;\n");
+
+    private final ParserPool pool = new ParserPool(CodeParserUtil.defaultConfiguration(), 1, 1000);
+    private final ObjectMapper json = new ObjectMapper();
+
+    @Test
+    void editedDeclarationMatchesWholeFileParse() throws Exception {
+        IncrementalAnalyzer incremental = new IncrementalAnalyzer(10);
+
+        assertSame(parse(ORIGINAL), analyze(incremental, "Orders.java", ORIGINAL));
+        assertSame(parse(EDITED), analyze(incremental, "Orders.java", EDITED));
+
+        assertEquals(1L, incremental.stats().get("fullParses"));
+        assertEquals(1L, incremental.stats().get("incrementalParses"));
+        assertEquals(1L, incremental.stats().get("declarationsParsed"));
+    }
+
+    @Test
+    void noStateWithoutPath() throws Exception {
+        IncrementalAnalyzer incremental = new IncrementalAnalyzer(10);
+
+        assertSame(parse(ORIGINAL), analyze(incremental, null, ORIGINAL));
+        assertSame(parse(EDITED), analyze(incremental, null, EDITED));
+
+        assertEquals(0, incremental.stats().get("files"));
+        assertEquals(2L, incremental.stats().get("fullParses"));
+    }
+
+    private CodeParserUtil.Result analyze(IncrementalAnalyzer incremental, String path, String source)
+            throws Exception {
+        return incremental.analyze(path, bytes(source), pool, Deadline.NONE, Section.ALL);
+    }
+
+    private CodeParserUtil.Result parse(String source) throws Exception {
+        return CodeParserUtil.parseJavaFile(bytes(source), pool);
+    }
+
+    // Metrics, flow and method table, compared as the API would return them
+    private void assertSame(CodeParserUtil.Result expected, CodeParserUtil.Result actual) throws Exception {
+        assertEquals(json.writeValueAsString(expected.metrics), json.writeValueAsString(actual.metrics));
+        assertEquals(json.writeValueAsString(expected.flow), json.writeValueAsString(actual.flow));
+        assertEquals(json.writeValueAsString(expected.methods), json.writeValueAsString(actual.methods));
+    }
+
+    private static ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,77 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.model.SymbolReference;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdkTypeSolverTest {
+
+    @Test
+    void answersAreCachedFoundOrNot() {
+        JdkTypeSolver jdk = new JdkTypeSolver(100);
+
+        SymbolReference<ResolvedReferenceTypeDeclaration> list = jdk.tryToSolveType("java.util.List");
+        assertTrue(list.isSolved());
+        assertEquals("java.util.List", list.getCorrespondingDeclaration().getQualifiedName());
+        assertSame(list, jdk.tryToSolveType("java.util.List"));
+
+        // the symbol solver tries a simple name in every imported package: misses repeat too
+        assertFalse(jdk.tryToSolveType("java.util.Shop").isSolved());
+        assertFalse(jdk.tryToSolveType("java.util.Shop").isSolved());
+
+        assertEquals(2L, jdk.stats().get("hits"));
+        assertEquals(2L, jdk.stats().get("misses"));
+        assertEquals(2, jdk.stats().get("entries"));
+    }
+
+    // uploaded types never reach the class loader, nor take a cache slot
+    @Test
+    void onlyJdkNamesAreLookedUp() {
+        JdkTypeSolver jdk = new JdkTypeSolver(100);
+
+        assertFalse(jdk.tryToSolveType("app.Shop").isSolved());
+        assertFalse(jdk.tryToSolveType("com.smartcode.analyzer.util.JdkTypeSolver").isSolved());
+        assertTrue(jdk.tryToSolveType("javax.crypto.Cipher").isSolved());
+
+        assertEquals(1L, jdk.stats().get("misses"));
+        assertEquals(1, jdk.stats().get("entries"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedName() {
+        JdkTypeSolver jdk = new JdkTypeSolver(2);
+        jdk.tryToSolveType("java.lang.String");
+        jdk.tryToSolveType("java.lang.Integer");
+        jdk.tryToSolveType("java.lang.String");
+        jdk.tryToSolveType("java.lang.Long");
+
+        assertEquals(2, jdk.stats().get("entries"));
+        assertEquals(1L, jdk.stats().get("evictions"));
+
+        jdk.tryToSolveType("java.lang.String");
+        jdk.tryToSolveType("java.lang.Integer");
+        assertEquals(2L, jdk.stats().get("hits"));
+        assertEquals(4L, jdk.stats().get("misses"));
+
+        JdkTypeSolver uncached = new JdkTypeSolver(0);
+        assertTrue(uncached.tryToSolveType("java.lang.String").isSolved());
+        assertEquals(0, uncached.stats().get("entries"));
+    }
+
+    // shared by every build: joining one doesn't give it that build's solver as parent
+    @Test
+    void neverTakesAParent() {
+        JdkTypeSolver jdk = new JdkTypeSolver(100);
+        new CombinedTypeSolver(jdk);
+
+        assertNull(jdk.getParent());
+        assertSame(jdk, jdk.getRoot());
+    }
+}
@@ -0,0 +1,130 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.stmt.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsVisitorTest {
+
+    private static final String CONSTRUCTS = String.join("\n",
+            "import java.util.*;",
+            "public class Shop {",
+            "    private int total = price(1), count;",
+            "    static { init(); }",
+            "    Shop() { this(0); }",
+            "    Shop(int n) { super(); count = n > 0 ? n : -n; }",
+            "    int price(int q) {",
+            "        int[] a = new int[q];",
+            "        for (int i = 0; i < q; i++) a[i] = i;",
+            "        for (int x : a) { if (x > 2) { total += x; } else if (x < 0) break; }",
+            "        while (q-- > 0) { do { q--; } while (q > 5); }",
+            "        switch (q) { case 1: return 1; case 2: case 3: return 2; default: }",
+            "        int s = switch (q) { case 4 -> 4; default -> { yield q > 1 ? 1 : 0; } };",
+            "        try { Objects.requireNonNull(a).clone(); } catch (RuntimeException e) { throw e; }",
+            "        finally { log(\"done\"); }",
+            "        Runnable r = () -> { for (;;) { log(String.valueOf(s)); } };",
+            "        new Thread(new Runnable() { public void run() { log(\"x\"); } }).start();",
+            "        return s;",
+            "    }",
+            "    static void log(String m) { System.out.println(m.trim().toLowerCase()); }",
+            "    static void init() { }",
+            "    class Inner { int depth() { return price(2); } }",
+            "    interface Api { void call(); }",
+            "    enum Mode { A, B; Mode next() { return values()[ordinal() + 1]; } }",
+            "    record Point(int x, int y) { Point { if (x < 0) throw new IllegalArgumentException(); } }",
+            "}");
+
+    private static int depth(String body) {
+        CompilationUnit cu = new JavaParser().parse("class A {\n" + body + "\n}").getResult().orElseThrow();
+        return MetricsVisitor.collect(cu).getMaxDepth();
+    }
+
+    @Test
+    void depthWithoutCallsIsOne() {
+        assertEquals(1, depth(""));
+        assertEquals(1, depth("int f() { return 1; }"));
+    }
+
+    @Test
+    void depthCountsEveryLevelOfAChain() {
+        assertEquals(2, depth("void a() { b(); } void b() { }"));
+        assertEquals(3, depth("void a() { b(); } void b() { this.c(); } void c() { }"));
+    }
+
+    @Test
+    void callLeavingTheFileAddsOneLevel() {
+        assertEquals(2, depth("void a() { System.out.println(); }"));
+        assertEquals(3, depth("void a() { b(); } void b() { list.add(1); }"));
+    }
+
+    @Test
+    void overloadsAreAllCallees() {
+        assertEquals(3, depth("void a() { b(); } void b(int x) { } void b() { c(); } void c() { }"));
+    }
+
+    // A recursion cycle collapses into one level, so a method that only calls
+    // itself reports the same depth as one without calls
+    @Test
+    void recursionCountsAsOneLevel() {
+        assertEquals(1, depth("int f(int n) { return n == 0 ? 0 : f(n - 1); }"));
+        assertEquals(1, depth("void a() { b(); } void b() { a(); }"));
+        assertEquals(2, depth("void a() { b(); } void b() { a(); c(); } void c() { }"));
+        assertEquals(2, depth("int f(int n) { return n == 0 ? Math.abs(n) : f(n - 1); }"));
+    }
+
+    @Test
+    void callsOutsideMethodsDontCount() {
+        assertEquals(1, depth("int x = compute(); static { init(); }"));
+    }
+
+    // The counts the analyzer used to take with one findAll() per node type
+    @Test
+    void countsMatchOnePassPerNodeType() throws Exception {
+        assertSameAsFindAll(parse(CONSTRUCTS));
+        assertSameAsFindAll(parse(Files.readString(Paths.get("samplfiles/javacode2.java"))));
+    }
+
+    private static CompilationUnit parse(String source) {
+        return new JavaParser(CodeParserUtil.defaultConfiguration()).parse(source).getResult().orElseThrow();
+    }
+
+    private static void assertSameAsFindAll(CompilationUnit cu) {
+        MetricsVisitor v = MetricsVisitor.collect(cu);
+
+        int ternaries = cu.findAll(ConditionalExpr.class).size();
+        int conditionals = cu.findAll(IfStmt.class).size() + cu.findAll(SwitchStmt.class).size() + ternaries;
+        int loops = cu.findAll(ForStmt.class).size() + cu.findAll(ForEachStmt.class).size()
+                + cu.findAll(WhileStmt.class).size() + cu.findAll(DoStmt.class).size();
+        int catches = cu.findAll(CatchClause.class).size();
+
+        assertEquals(cu.findAll(ClassOrInterfaceDeclaration.class).size(), v.getClasses(), "classes");
+        assertEquals(cu.findAll(MethodDeclaration.class).size(), v.getMethods(), "methods");
+        assertEquals(cu.findAll(VariableDeclarator.class).size(), v.getVariables(), "variables");
+        assertEquals(conditionals, v.getConditionals(), "conditionals");
+        assertEquals(loops, v.getLoops(), "loops");
+        assertEquals(cu.findAll(TryStmt.class).size() + catches + cu.findAll(ThrowStmt.class).size(),
+                v.getExceptionBlocks(), "exception blocks");
+        assertEquals(1 + conditionals + loops + catches + ternaries + cu.findAll(SwitchEntry.class).size(),
+                v.getCyclomaticComplexity(), "cyclomatic complexity");
+
+        List<String> calls = cu.findAll(MethodCallExpr.class).stream()
+                .map(MethodCallExpr::getNameAsString)
+                .distinct()
+                .limit(10)
+                .collect(Collectors.toList());
+        assertEquals(calls, v.getCalls(), "calls");
+    }
+}
@@ -0,0 +1,36 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.JavaParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParserPoolTest {
+
+    @Test
+    void requestDeadlineEndsTheWaitAsABudgetError() throws Exception {
+        ParserPool pool = new ParserPool(CodeParserUtil.defaultConfiguration(), 1, 5_000);
+        JavaParser only = pool.acquire();
+
+        BudgetExceededException e = assertThrows(BudgetExceededException.class,
+                () -> pool.acquire(Deadline.after(20)));
+        assertEquals(BudgetExceededException.Limit.TIME, e.getLimit());
+        assertEquals(20, e.getMax());
+
+        pool.release(only);
+        assertSame(only, pool.acquire(Deadline.after(20)));
+    }
+
+    @Test
+    void poolTimeoutReportsTheActualWait() throws Exception {
+        ParserPool pool = new ParserPool(CodeParserUtil.defaultConfiguration(), 1, 50);
+        pool.acquire();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pool.acquire(Deadline.after(5_000)));
+        assertTrue(e.getMessage().matches("No parser available after \\d+ ms, analyzer is overloaded"),
+                e.getMessage());
+    }
+}
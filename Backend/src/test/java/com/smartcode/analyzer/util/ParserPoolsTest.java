@@ -0,0 +1,100 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParserPoolsTest {
+
+    // records and var need a newer level than Java 8
+    private static final String RECORD = "record Point(int x, int y) { int sum() { var s = x + y; return s; } }";
+
+    // record patterns (Java 21) in a switch and after instanceof
+    private static final String PATTERNS = String.join("\n",
+            "record Point(int x, int y) { }",
+            "class Shapes {",
+            "    static int sum(Object o) {",
+            "        if (o instanceof Point(var x, var y)) return x + y;",
+            "        return switch (o) {",
+            "            case Point(int x, int y) when x > y -> x;",
+            "            case Point(int x, int y) -> y;",
+            "            default -> 0;",
+            "        };",
+            "    }",
+            "}");
+
+    private static ByteBuffer bytes(String source) {
+        return ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean parses(String source, ParserPool pool) throws InterruptedException {
+        return CodeParserUtil.parse(ParseStart.COMPILATION_UNIT, bytes(source), pool, Deadline.NONE).isSuccessful();
+    }
+
+    @Test
+    void parsesLevelNames() {
+        assertEquals(LanguageLevel.JAVA_17, ParserPools.parseLevel("17"));
+        assertEquals(LanguageLevel.JAVA_17, ParserPools.parseLevel(" java_17 "));
+        assertEquals(LanguageLevel.JAVA_8, ParserPools.parseLevel("1.8"));
+        assertEquals(LanguageLevel.JAVA_8, ParserPools.parseLevel("8"));
+        assertEquals(LanguageLevel.JAVA_1_4, ParserPools.parseLevel("1.4"));
+        assertEquals(LanguageLevel.JAVA_11, ParserPools.parseLevel("JAVA_11"));
+
+        assertNull(ParserPools.parseLevel(null));
+        assertNull(ParserPools.parseLevel(" "));
+        assertNull(ParserPools.parseLevel("Auto"));
+
+        assertThrows(IllegalArgumentException.class, () -> ParserPools.parseLevel("42"));
+        assertThrows(IllegalArgumentException.class, () -> ParserPools.parseLevel("1.42"));
+    }
+
+    @Test
+    void oneCachedPoolPerLevel() {
+        ParserPools pools = new ParserPools(LanguageLevel.JAVA_17, List.of(LanguageLevel.JAVA_11), 1, 1000);
+
+        assertSame(pools.get(LanguageLevel.JAVA_11), pools.forLevel(LanguageLevel.JAVA_11));
+        assertSame(pools.getDefault(), pools.get(LanguageLevel.JAVA_17));
+        assertSame(pools.getAuto(), pools.forLevel(null));
+        assertSame(pools.getDefault(), pools.warmUp().get(0));
+        assertEquals(3, pools.warmUp().size());
+
+        // every level is built up front
+        for (LanguageLevel level : LanguageLevel.values()) {
+            assertTrue(pools.get(level).getConfigKey().startsWith(level.name()), level.name());
+        }
+    }
+
+    @Test
+    void autoDetectFallsBackToTheNewestLevel() throws Exception {
+        ParserPools pools = new ParserPools(LanguageLevel.JAVA_8, List.of(), 1, 1000);
+
+        assertFalse(parses(RECORD, pools.getDefault()));
+        assertTrue(parses(RECORD, pools.getAuto()));
+        assertTrue(parses("class Old { }", pools.getAuto()));
+
+        assertEquals(1, CodeParserUtil.parseJavaFile(bytes(RECORD), pools.getAuto()).metrics.getTotalMethods());
+    }
+
+    @Test
+    void parsesRecordPatternsAtJava21() throws Exception {
+        ParserPools pools = new ParserPools(LanguageLevel.JAVA_17, List.of(), 1, 1000);
+
+        assertFalse(parses(PATTERNS, pools.getDefault()));
+        assertTrue(parses(PATTERNS, pools.get(LanguageLevel.JAVA_21)));
+        assertTrue(parses(PATTERNS, pools.getAuto()));
+
+        CodeParserUtil.Result res = CodeParserUtil.parseJavaFile(bytes(PATTERNS), pools.forLevel(LanguageLevel.JAVA_21));
+        assertEquals(1, res.metrics.getTotalMethods());
+    }
+}
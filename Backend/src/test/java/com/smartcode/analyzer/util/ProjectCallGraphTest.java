@@ -0,0 +1,147 @@
+package com.smartcode.analyzer.util;
+
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.smartcode.analyzer.model.CallGraphSummary;
+import com.smartcode.analyzer.model.CallGraphSummary.MethodCount;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ProjectCallGraphTest {
+
+    private static final ParserPools POOLS = new ParserPools(LanguageLevel.JAVA_17, List.of(), 2, 1000);
+    private static final JdkTypeSolver JDK = new JdkTypeSolver(1000);
+
+    private static final String A = String.join("\n",
+            "package app;",
+            "public class A {",
+            "    public A() { }",
+            "    public void a() { new B().b(); helper(); helper(); }",
+            "    void helper() { System.out.println(\"x\"); }",
+            "}");
+
+    private static final String B = String.join("\n",
+            "package app;",
+            "import lib.Missing;",
+            "public class B {",
+            "    public B() { }",
+            "    public void b() { new A().a(); Missing.call(); }",
+            "}");
+
+    private static final String C = String.join("\n",
+            "package app;",
+            "class C {",
+            "    static int c() { new A().a(); new B().b(); return Math.abs(-1); }",
+            "}");
+
+    private static SourceInput source(String path, String text) {
+        return SourceInput.of(ZipUtil.fileName(path), text).withPath(path);
+    }
+
+    private static ProjectCallGraph graph(int maxFiles, long maxBytes) {
+        return new ProjectCallGraph(POOLS.getAuto(), JDK, maxFiles, maxBytes, 0);
+    }
+
+    private static List<String> names(List<MethodCount> counts) {
+        return counts.stream().map(c -> c.getMethod() + "=" + c.getCount()).collect(Collectors.toList());
+    }
+
+    @Test
+    void resolvesCallsAcrossFiles() {
+        ProjectCallGraph graph = graph(0, 0);
+        graph.add(source("app/C.java", C), Deadline.NONE);
+        graph.add(source("app/A.java", A), Deadline.NONE);
+        graph.add(source("app/B.java", B), Deadline.NONE);
+
+        CallGraphSummary s = graph.build();
+
+        // A(), a(), helper(), B(), b(), c(), numbered by path whatever the order of add()
+        assertEquals(6, s.getMethods());
+        // a -> B(), b, helper; b -> A(), a; c -> A(), a, B(), b (helper() twice counts once)
+        assertEquals(9, s.getCalls());
+        assertEquals(2, s.getExternalCalls());      // println, Math.abs
+        assertEquals(1, s.getUnresolvedCalls());    // lib.Missing wasn't uploaded
+        assertEquals(0, s.getSkippedFiles());
+        assertFalse(s.isTruncated());
+
+        assertEquals(1, s.getRecursiveCycles());
+        assertEquals(List.of(List.of("app.A.a()", "app.B.b()")), s.getCycles());
+
+        assertEquals(List.of("app.A.A()=2", "app.A.a()=2", "app.B.B()=2", "app.B.b()=2", "app.A.helper()=1"),
+                names(s.getTopFanIn()));
+        assertEquals(List.of("app.C.c()=4", "app.A.a()=3", "app.B.b()=2"), names(s.getTopFanOut()));
+
+        // c -> the a/b cycle (reported by a, which calls out of it) -> helper
+        assertEquals(List.of("app.C.c()", "app.A.a()", "app.A.helper()"), s.getDeepestChain());
+    }
+
+    @Test
+    void keepsAstsParsedElsewhere() throws Exception {
+        ProjectCallGraph graph = graph(0, 0);
+        for (String[] file : new String[][] {{"app/A.java", A}, {"app/B.java", B}}) {
+            SourceInput source = source(file[0], file[1]);
+            CodeParserUtil.parseJavaFile(source.bytes(), POOLS.getAuto(), Deadline.NONE, Section.ALL,
+                    cu -> graph.add(source, cu));
+        }
+
+        CallGraphSummary s = graph.build();
+        assertEquals(5, s.getMethods());
+        assertEquals(5, s.getCalls());
+    }
+
+    @Test
+    void filesOverTheLimitsAreSkipped() throws Exception {
+        ProjectCallGraph byCount = graph(2, 0);
+        byCount.add(source("app/A.java", A), Deadline.NONE);
+        byCount.add(source("app/B.java", B), Deadline.NONE);
+        byCount.add(source("app/C.java", C), Deadline.NONE);
+        byCount.skip();
+        assertEquals(2, byCount.build().getSkippedFiles());
+
+        ProjectCallGraph bySize = graph(0, A.length() + 1);
+        bySize.add(source("app/A.java", A), Deadline.NONE);
+        bySize.add(source("app/B.java", B), Deadline.NONE);
+        CallGraphSummary s = bySize.build();
+        assertEquals(1, s.getSkippedFiles());
+        assertEquals(3, s.getMethods());
+
+        Deadline spent = Deadline.after(1);
+        Thread.sleep(5);
+        ProjectCallGraph late = graph(0, 0);
+        late.add(source("app/A.java", A), spent);
+        assertEquals(1, late.build().getSkippedFiles());
+    }
+
+    // every build has its own facade; one ending doesn't clear another's mid-resolution
+    @Test
+    void concurrentBuildsDontInterfere() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CallGraphSummary>> builds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                builds.add(workers.submit(() -> {
+                    ProjectCallGraph graph = graph(0, 0);
+                    graph.add(source("app/A.java", A), Deadline.NONE);
+                    graph.add(source("app/B.java", B), Deadline.NONE);
+                    graph.add(source("app/C.java", C), Deadline.NONE);
+                    return graph.build();
+                }));
+            }
+            for (Future<CallGraphSummary> build : builds) {
+                CallGraphSummary s = build.get();
+                assertEquals(9, s.getCalls());
+                assertEquals(1, s.getUnresolvedCalls());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.smartcode.analyzer.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+
+    // Skewed like per-file metrics: mostly small, a long tail, some zeros
+    private static double[] values(long seed, int n) {
+        Random random = new Random(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(20) == 0 ? 0 : Math.exp(random.nextGaussian() * 2 + 4);
+        }
+        return values;
+    }
+
+    private static QuantileSketch sketch(double[] values, int from, int to) {
+        QuantileSketch s = new QuantileSketch();
+        for (int i = from; i < to; i++) s.add(values[i]);
+        return s;
+    }
+
+    // Same rank as QuantileSketch.quantile(), over the sorted values
+    private static double exact(double[] sorted, double q) {
+        return sorted[(int) (q * (sorted.length - 1))];
+    }
+
+    private static void assertWithinOnePercent(double[] values, QuantileSketch s) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double q : QUANTILES) {
+            double expected = exact(sorted, q);
+            double actual = s.quantile(q);
+            assertTrue(Math.abs(actual - expected) <= expected * 0.01 + 1e-9,
+                    () -> "q" + q + ": expected " + expected + " within 1%, was " + actual);
+        }
+    }
+
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        double[] values = values(1, 100_000);
+        QuantileSketch s = sketch(values, 0, values.length);
+
+        assertEquals(values.length, s.count());
+        assertWithinOnePercent(values, s);
+    }
+
+    @Test
+    void mergeEqualsOneSketchOverAllValues() {
+        double[] values = values(2, 30_000);
+        QuantileSketch whole = sketch(values, 0, values.length);
+
+        QuantileSketch merged = sketch(values, 0, 10_000);
+        merged.merge(sketch(values, 10_000, 25_000));
+        merged.merge(new QuantileSketch());
+        merged.merge(sketch(values, 25_000, values.length));
+
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.getZeroCount(), merged.getZeroCount());
+        for (double q : QUANTILES) {
+            assertEquals(whole.quantile(q), merged.quantile(q), 0, "q" + q);
+        }
+        assertWithinOnePercent(values, merged);
+    }
+
+    @Test
+    void emptySketch() {
+        QuantileSketch s = new QuantileSketch();
+        assertEquals(0, s.count());
+        assertEquals(0, s.quantile(0.5), 0);
+    }
+
+    @Test
+    void survivesAJsonRoundTrip() throws Exception {
+        double[] values = values(3, 1_000);
+        QuantileSketch s = sketch(values, 0, values.length);
+
+        ObjectMapper json = new ObjectMapper();
+        QuantileSketch copy = json.readValue(json.writeValueAsString(s), QuantileSketch.class);
+        copy.validate();
+
+        assertArrayEquals(s.getCounts(), copy.getCounts());
+        assertEquals(s.quantile(0.9), copy.quantile(0.9), 0);
+    }
+
+    @Test
+    void rejectsStateAddAndMergeCannotProduce() {
+        QuantileSketch huge = new QuantileSketch();
+        huge.setOffset(Integer.MAX_VALUE);
+        huge.setCounts(new long[] {1});
+        assertThrows(IllegalArgumentException.class, huge::validate);
+
+        QuantileSketch low = new QuantileSketch();
+        low.setOffset(Integer.MIN_VALUE);
+        low.setCounts(new long[] {1});
+        assertThrows(IllegalArgumentException.class, low::validate);
+
+        QuantileSketch negative = new QuantileSketch();
+        negative.setCounts(new long[] {1, -1});
+        assertThrows(IllegalArgumentException.class, negative::validate);
+
+        QuantileSketch negativeZeros = new QuantileSketch();
+        negativeZeros.setZeroCount(-1);
+        assertThrows(IllegalArgumentException.class, negativeZeros::validate);
+
+        QuantileSketch wide = new QuantileSketch();
+        wide.setCounts(new long[4096]);
+        assertThrows(IllegalArgumentException.class, wide::validate);
+
+        QuantileSketch overflow = new QuantileSketch();
+        overflow.setCounts(new long[] {Long.MAX_VALUE, 1});
+        assertThrows(IllegalArgumentException.class, overflow::validate);
+    }
+
+    @Test
+    void extremeValuesStayValid() {
+        QuantileSketch s = new QuantileSketch();
+        s.add(1e-9);
+        s.add(Double.MAX_VALUE);
+        s.add(Double.POSITIVE_INFINITY);
+        s.validate();
+        assertEquals(3, s.count());
+    }
+}
@@ -0,0 +1,52 @@
+package com.smartcode.analyzer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SourceScannerTest {
+
+    private static SourceScanner.LineStats scan(String source) {
+        return SourceScanner.scan(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // blank, comment, code
+    private static void assertLines(String source, int blank, int comment, int code) {
+        SourceScanner.LineStats s = scan(source);
+        assertEquals(blank, s.blankLines, "blank lines of " + source);
+        assertEquals(comment, s.commentLines, "comment lines of " + source);
+        assertEquals(code, s.codeLines, "code lines of " + source);
+        assertEquals(s.totalLines, blank + comment + code, "every line is classified once");
+    }
+
+    // the definition totalLines keeps: split("\n") over the text with CRLF and CR normalized
+    @Test
+    void totalLinesMatchesSplitOfTheNormalizedText() {
+        String[] sources = {
+                "", "x", "x\n", "\n", "\n\n", "x\n\n\n", "\n\nx", "a\nb", "a\r\nb\r\n", "a\rb\rc",
+                "a\r\n\r\nb", "a\n\r\n\rb\n", "  \n\t\n", "a\n  \n"
+        };
+        for (String source : sources) {
+            String normalized = source.replace("\r\n", "\n").replace("\r", "\n");
+            assertEquals(normalized.split("\n").length, scan(source).totalLines, "lines of " + source);
+        }
+    }
+
+    @Test
+    void classifiesBlankCommentAndCodeLines() {
+        assertLines("int a;\n\n// note\nint b; // trailing\n", 1, 1, 2);
+        assertLines("/* one\n   two\n*/\nint a;", 0, 3, 1);
+        assertLines("/* c */ int a;\n  /* c */  \n", 0, 1, 1);
+        assertLines("/*\n\n*/", 1, 2, 0);
+    }
+
+    @Test
+    void commentMarkersInsideLiteralsAreCode() {
+        assertLines("String s = \"// not a comment\";\nchar c = '/';\n", 0, 0, 2);
+        assertLines("String s = \"\\\" /* still a string\";\nint a;", 0, 0, 2);
+        assertLines("String t = \"\"\"\n    // text\n    /* block\n    \"\"\";\n// after", 0, 1, 4);
+    }
+}